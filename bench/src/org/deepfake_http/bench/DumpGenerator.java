@@ -0,0 +1,341 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+
+package org.deepfake_http.bench;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Synthetic dump and request corpus generator for scaling tests.
+ *
+ * Every route has a unique path, so each corpus request matches exactly one route
+ * (or none for misses). Route kinds are mixed round robin: static paths, <code>{param}</code> paths,
+ * wildcard queries, header constraints, JSON bodies and form bodies. The corpus is written in dump format
+ * with the expected status in the response status line, as read by {@link InProcessHarness} and <code>--bench</code>.
+ * Output depends only on options, so runs with the same seed are reproducible.
+ *
+ * <pre>
+ * java -cp bench/bin org.deepfake_http.bench.DumpGenerator [OPTIONS]
+ *
+ *   --routes &lt;number&gt;      number of routes, default: 10000
+ *   --files &lt;number&gt;       split routes across dump files, default: 1
+ *   --out &lt;file&gt;           dump file (files are numbered if --files &gt; 1), default: dump.txt
+ *   --corpus &lt;file&gt;        request corpus file, default: corpus.txt
+ *   --requests &lt;number&gt;    corpus requests, default: 10000
+ *   --miss-ratio &lt;0..1&gt;    ratio of corpus requests not matching any route, default: 0.1
+ *   --templated &lt;0..1&gt;     ratio of templated responses, default: 0.5
+ *   --js-ratio &lt;0..1&gt;      ratio of routes with X-Handler-JS, default: 0
+ *   --js &lt;file&gt;            JavaScript handlers file (written if --js-ratio &gt; 0), default: handlers.js
+ *   --seed &lt;number&gt;        random seed, default: 1
+ *
+ * e.g. --routes 100000 --requests 50000 --templated 0.3
+ *      then: InProcessHarness --corpus corpus.txt --dump dump.txt --no-log --no-watch
+ * </pre>
+ */
+public class DumpGenerator {
+	private static final String ARGS_ROUTES     = "--routes";
+	private static final String ARGS_FILES      = "--files";
+	private static final String ARGS_OUT        = "--out";
+	private static final String ARGS_CORPUS     = "--corpus";
+	private static final String ARGS_REQUESTS   = "--requests";
+	private static final String ARGS_MISS_RATIO = "--miss-ratio";
+	private static final String ARGS_TEMPLATED  = "--templated";
+	private static final String ARGS_JS_RATIO   = "--js-ratio";
+	private static final String ARGS_JS         = "--js";
+	private static final String ARGS_SEED       = "--seed";
+
+	private static final int KIND_STATIC = 0;
+	private static final int KIND_PARAM  = 1;
+	private static final int KIND_QUERY  = 2;
+	private static final int KIND_HEADER = 3;
+	private static final int KIND_JSON   = 4;
+	private static final int KIND_FORM   = 5;
+	private static final int KINDS       = 6;
+
+	private static final String[] PARAM_METHODS = { "GET", "PUT", "DELETE" };
+
+	private static final int ROUTES_PER_SERVICE = 100;
+	private static final int JS_FUNCTIONS       = 16;
+	private static final int MISS_STATUS        = 404; // default --status
+
+	private static final String NL = "\n";
+
+	private final int    routes;
+	private final double templated;
+	private final double jsRatio;
+	private final long   seed;
+
+	public DumpGenerator(int routes, double templated, double jsRatio, long seed) {
+		this.routes    = routes;
+		this.templated = templated;
+		this.jsRatio   = jsRatio;
+		this.seed      = seed;
+	}
+
+	public static void main(String[] args) throws IOException {
+		int    routes    = 10_000;
+		int    files     = 1;
+		String out       = "dump.txt";
+		String corpus    = "corpus.txt";
+		int    requests  = 10_000;
+		double missRatio = 0.1;
+		double templated = 0.5;
+		double jsRatio   = 0;
+		String js        = "handlers.js";
+		long   seed      = 1;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals(ARGS_ROUTES) && i < args.length - 1)
+				routes = Integer.parseInt(args[++i]);
+			else if (args[i].equals(ARGS_FILES) && i < args.length - 1)
+				files = Integer.parseInt(args[++i]);
+			else if (args[i].equals(ARGS_OUT) && i < args.length - 1)
+				out = args[++i];
+			else if (args[i].equals(ARGS_CORPUS) && i < args.length - 1)
+				corpus = args[++i];
+			else if (args[i].equals(ARGS_REQUESTS) && i < args.length - 1)
+				requests = Integer.parseInt(args[++i]);
+			else if (args[i].equals(ARGS_MISS_RATIO) && i < args.length - 1)
+				missRatio = Double.parseDouble(args[++i]);
+			else if (args[i].equals(ARGS_TEMPLATED) && i < args.length - 1)
+				templated = Double.parseDouble(args[++i]);
+			else if (args[i].equals(ARGS_JS_RATIO) && i < args.length - 1)
+				jsRatio = Double.parseDouble(args[++i]);
+			else if (args[i].equals(ARGS_JS) && i < args.length - 1)
+				js = args[++i];
+			else if (args[i].equals(ARGS_SEED) && i < args.length - 1)
+				seed = Long.parseLong(args[++i]);
+			else
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+		}
+
+		Logger        logger    = Logger.getLogger(DumpGenerator.class.getName());
+		DumpGenerator generator = new DumpGenerator(routes, templated, jsRatio, seed);
+
+		List<String> dumpFiles = dumpFileNames(out, files);
+		for (int f = 0; f < files; f++) {
+			try (Writer writer = newWriter(dumpFiles.get(f))) {
+				generator.writeDump(writer, routes * f / files, routes * (f + 1) / files);
+			}
+		}
+		try (Writer writer = newWriter(corpus)) {
+			generator.writeCorpus(writer, requests, missRatio);
+		}
+		if (jsRatio > 0)
+			try (Writer writer = newWriter(js)) {
+				writeJs(writer);
+			}
+
+		logger.log(Level.INFO, "{0} route(s) written to {1}, {2} request(s) written to {3}", new Object[] { routes, dumpFiles, requests, corpus });
+	}
+
+	/**
+	 * Write routes [from, to) in dump format
+	 *
+	 * @param writer
+	 * @param from
+	 * @param to
+	 * @throws IOException
+	 */
+	public void writeDump(Writer writer, int from, int to) throws IOException {
+		writer.write("# Synthetic dump: routes " + from + ".." + (to - 1) + " of " + routes + ", seed " + seed + NL + NL);
+		for (int i = from; i < to; i++) {
+			Random       random  = routeRandom(i);
+			int          kind    = i % KINDS;
+			String       base    = basePath(i);
+			String       method;
+			String       uri;
+			String       body    = null;
+			List<String> headers = new ArrayList<>();
+			switch (kind) {
+			case KIND_PARAM:
+				method = PARAM_METHODS[(i / KINDS) % PARAM_METHODS.length];
+				uri    = base + "/{id}";
+				break;
+			case KIND_QUERY:
+				method = "GET";
+				uri    = base + "/search?q=item" + i + "*&page=?";
+				break;
+			case KIND_HEADER:
+				method = "GET";
+				uri    = base + "/items";
+				headers.add("Accept: application/json");
+				headers.add("X-Tenant: tenant-" + i + "-*");
+				break;
+			case KIND_JSON:
+				method = "POST";
+				uri    = base + "/orders";
+				headers.add("Content-Type: application/json");
+				body   = "{\"id\": " + i + ", \"name\": \"item " + i + "\", \"tags\": [\"a\", \"b\"]}";
+				break;
+			case KIND_FORM:
+				method = "POST";
+				uri    = base + "/form";
+				headers.add("Content-Type: application/x-www-form-urlencoded");
+				body   = "user=u" + i + "&token=*";
+				break;
+			default:
+				method = "GET";
+				uri    = base;
+			}
+			writeRequest(writer, method, uri, headers, body);
+
+			boolean created = kind == KIND_JSON || kind == KIND_FORM;
+			writer.write("HTTP/1.1 " + (created ? "201 Created" : "200 OK") + NL);
+			writer.write("Content-Type: application/json" + NL);
+			if (random.nextDouble() < jsRatio)
+				writer.write("X-Handler-JS: h" + (i % JS_FUNCTIONS) + NL);
+			writer.write(NL);
+			if (random.nextDouble() < templated) {
+				String param = kind == KIND_PARAM ? ", \"id\": \"${request.parameters.id[0]}\"" : "";
+				writer.write("{\"route\": " + i + ", \"method\": \"${request.method}\", \"path\": \"${request.path}\"" + param + "}" + NL);
+			} else
+				writer.write("{\"route\": " + i + ", \"name\": \"item " + i + "\", \"price\": " + random.nextInt(10_000) / 100.0 + "}" + NL);
+			writer.write(NL);
+		}
+	}
+
+	/**
+	 * Write corpus requests with expected status
+	 *
+	 * @param writer
+	 * @param requests
+	 * @param missRatio
+	 * @throws IOException
+	 */
+	public void writeCorpus(Writer writer, int requests, double missRatio) throws IOException {
+		Random random = new Random(seed);
+		writer.write("# Synthetic corpus: " + requests + " request(s) for " + routes + " route(s), seed " + seed + NL + NL);
+		for (int n = 0; n < requests; n++) {
+			if (random.nextDouble() < missRatio) {
+				writeRequest(writer, "GET", "/api/v1/missing/" + random.nextInt(Integer.MAX_VALUE), List.of("Accept: application/json"), null);
+				writer.write("HTTP/1.1 " + MISS_STATUS + NL + NL);
+				continue;
+			}
+			int          i       = random.nextInt(routes);
+			int          kind    = i % KINDS;
+			String       base    = basePath(i);
+			String       method;
+			String       uri;
+			String       body    = null;
+			List<String> headers = new ArrayList<>();
+			headers.add("Accept: application/json");
+			switch (kind) {
+			case KIND_PARAM:
+				method = PARAM_METHODS[(i / KINDS) % PARAM_METHODS.length];
+				uri    = base + "/" + random.nextInt(1_000_000);
+				break;
+			case KIND_QUERY:
+				method = "GET";
+				uri    = base + "/search?q=item" + i + "-" + Integer.toHexString(random.nextInt()) + "&page=" + random.nextInt(10);
+				break;
+			case KIND_HEADER:
+				method = "GET";
+				uri    = base + "/items";
+				headers.add("X-Tenant: tenant-" + i + "-" + (random.nextBoolean() ? "eu" : "us"));
+				break;
+			case KIND_JSON:
+				method = "POST";
+				uri    = base + "/orders";
+				headers.add("Content-Type: application/json");
+				body   = "{\"tags\":[\"a\",\"b\"],\"name\":\"item " + i + "\",\"id\":" + i + "}"; // same JSON, other key order
+				break;
+			case KIND_FORM:
+				method = "POST";
+				uri    = base + "/form";
+				headers.add("Content-Type: application/x-www-form-urlencoded");
+				body   = "user=u" + i + "&token=" + Integer.toHexString(random.nextInt());
+				break;
+			default:
+				method = "GET";
+				uri    = base;
+			}
+			writeRequest(writer, method, uri, headers, body);
+			boolean created = kind == KIND_JSON || kind == KIND_FORM;
+			writer.write("HTTP/1.1 " + (created ? "201" : "200") + NL + NL);
+		}
+	}
+
+	private static void writeRequest(Writer writer, String method, String uri, List<String> headers, String body) throws IOException {
+		writer.write(method + ' ' + uri + " HTTP/1.1" + NL);
+		for (String header : headers)
+			writer.write(header + NL);
+		writer.write(NL);
+		if (body != null)
+			writer.write(body + NL + NL);
+	}
+
+	private static void writeJs(Writer writer) throws IOException {
+		for (int f = 0; f < JS_FUNCTIONS; f++) {
+			writer.write("function h" + f + "(request, response, data) {" + NL);
+			writer.write("    response.headers['X-Handler'] = 'h" + f + "';" + NL);
+			writer.write("}" + NL + NL);
+		}
+	}
+
+	/**
+	 * Unique path per route, grouped by service
+	 */
+	private static String basePath(int i) {
+		return "/api/v1/svc" + i / ROUTES_PER_SERVICE + "/r" + i;
+	}
+
+	/**
+	 * Per route random, so dump content does not depend on --files
+	 */
+	private Random routeRandom(int i) {
+		return new Random(seed * 1_000_003L + i);
+	}
+
+	private static List<String> dumpFileNames(String out, int files) {
+		List<String> list = new ArrayList<>(files);
+		if (files == 1)
+			list.add(out);
+		else {
+			int    dot  = out.lastIndexOf('.');
+			String name = dot > 0 ? out.substring(0, dot) : out;
+			String ext  = dot > 0 ? out.substring(dot) : "";
+			for (int f = 0; f < files; f++)
+				list.add(name + '-' + f + ext);
+		}
+		return list;
+	}
+
+	private static Writer newWriter(String file) throws IOException {
+		return Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,315 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.bench;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.deepfake_http.bench.servlet.BenchRequest;
+import org.deepfake_http.bench.servlet.BenchResponse;
+import org.deepfake_http.common.FirstLineReq;
+import org.deepfake_http.common.FirstLineResp;
+import org.deepfake_http.common.ReqResp;
+import org.deepfake_http.common.metrics.Histogram;
+import org.deepfake_http.common.servlet.DeepfakeHttpServlet;
+import org.deepfake_http.common.utils.JacksonUtils;
+import org.deepfake_http.common.utils.ParseCommandLineUtils;
+import org.tommy.main.CustomMain;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * In-process end-to-end benchmark of DeepfakeHttpServlet without container and network.
+ *
+ * Requests are built from a corpus (dump format, response status line is the expected status)
+ * or from the served dumps themselves and run through servlet service() on the calling thread
+ * with in-memory request, response and async context. Reports throughput, latency percentiles
+ * and bytes allocated per request for 1, 2, 4 ... N threads.
+ *
+ * <pre>
+ * java -cp bench/bin org.deepfake_http.bench.InProcessHarness [HARNESS OPTIONS] [SERVER OPTIONS]
+ *
+ *   --corpus &lt;file&gt;      request corpus, default: requests from --dump files
+ *   --threads &lt;number&gt;   max threads, default: available processors
+ *   --requests &lt;number&gt;  measured requests per thread count, default: 100000
+ *   --warmup &lt;number&gt;    warmup requests per thread count, default: 20000
+ *   --json &lt;file&gt;        write results as JSON
+ *
+ * e.g. --corpus corpus.txt --threads 8 --dump dump.txt --no-log --no-watch
+ * </pre>
+ */
+public class InProcessHarness {
+	private static final String ARGS_CORPUS   = "--corpus";
+	private static final String ARGS_THREADS  = "--threads";
+	private static final String ARGS_REQUESTS = "--requests";
+	private static final String ARGS_WARMUP   = "--warmup";
+	private static final String ARGS_JSON     = "--json";
+
+	private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+	private final DeepfakeHttpServlet servlet;
+	private final List<CorpusEntry>   corpus;
+
+	/**
+	 * Corpus request with expected status
+	 */
+	private static class CorpusEntry {
+		final String       method;
+		final String       uri;
+		final List<String> headers;
+		final byte[]       body;
+		final int          expectedStatus; // 0 - not checked
+
+		CorpusEntry(String method, String uri, List<String> headers, byte[] body, int expectedStatus) {
+			this.method         = method;
+			this.uri            = uri;
+			this.headers        = headers;
+			this.body           = body;
+			this.expectedStatus = expectedStatus;
+		}
+	}
+
+	/**
+	 * Results for one thread count
+	 */
+	private static class Result {
+		int       threads;
+		long      requests;
+		long      elapsedNanos;
+		long      allocatedBytes;
+		long      responseBytes;
+		long      unexpectedStatus;
+		Histogram latency = new Histogram();
+	}
+
+	public InProcessHarness(DeepfakeHttpServlet servlet, List<CorpusEntry> corpus) {
+		this.servlet = servlet;
+		this.corpus  = corpus;
+	}
+
+	public static void main(String[] args) throws Throwable {
+		String       corpusFile  = null;
+		String       jsonFile    = null;
+		int          maxThreads  = Runtime.getRuntime().availableProcessors();
+		long         requests    = 100_000;
+		long         warmup      = 20_000;
+		List<String> servletArgs = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals(ARGS_CORPUS) && i < args.length - 1)
+				corpusFile = args[++i];
+			else if (args[i].equals(ARGS_THREADS) && i < args.length - 1)
+				maxThreads = Integer.parseInt(args[++i]);
+			else if (args[i].equals(ARGS_REQUESTS) && i < args.length - 1)
+				requests = Long.parseLong(args[++i]);
+			else if (args[i].equals(ARGS_WARMUP) && i < args.length - 1)
+				warmup = Long.parseLong(args[++i]);
+			else if (args[i].equals(ARGS_JSON) && i < args.length - 1)
+				jsonFile = args[++i];
+			else
+				servletArgs.add(args[i]);
+		}
+
+		Logger logger = Logger.getLogger(InProcessHarness.class.getName());
+
+		List<String> corpusFiles;
+		if (corpusFile != null)
+			corpusFiles = Arrays.asList(corpusFile);
+		else {
+			Map<String, Object> paramMap = ParseCommandLineUtils.parseCommandLineArgs(null, servletArgs.toArray(new String[0]));
+			@SuppressWarnings("unchecked")
+			List<String>        dumps    = (List<String>) paramMap.get(ParseCommandLineUtils.ARGS_DUMP);
+			corpusFiles = dumps;
+		}
+		List<CorpusEntry> corpus = loadCorpus(logger, corpusFiles, corpusFile != null);
+		if (corpus.isEmpty()) {
+			logger.log(Level.SEVERE, "Empty request corpus");
+			System.exit(1);
+		}
+
+		DeepfakeHttpServlet servlet = new DeepfakeHttpServlet();
+		servlet.init(servletArgs.toArray(new String[0]));
+
+		InProcessHarness harness = new InProcessHarness(servlet, corpus);
+
+		List<Result> results = new ArrayList<>();
+		System.out.println();
+		System.out.println(String.format("%7s %10s %12s %9s %9s %9s %9s %9s %12s %10s", "threads", "requests", "req/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us", "alloc B/req", "bad status"));
+		for (int threads : threadCounts(maxThreads)) {
+			harness.run(threads, warmup);
+			Result result = harness.run(threads, requests);
+			results.add(result);
+			System.out.println(format(result));
+		}
+
+		if (jsonFile != null) {
+			List<Map<String, Object>> list = new ArrayList<>();
+			for (Result result : results)
+				list.add(toMap(result));
+			Files.writeString(Paths.get(jsonFile), JacksonUtils.stringifyToJsonYaml(list, JacksonUtils.FORMAT_JSON, true, false));
+		}
+
+		servlet.destroy();
+		System.exit(0);
+	}
+
+	/**
+	 * Run requests over corpus with specified number of threads
+	 *
+	 * @param threads
+	 * @param requests - total requests
+	 * @return
+	 * @throws InterruptedException
+	 */
+	public Result run(int threads, long requests) throws InterruptedException {
+		Result         result           = new Result();
+		AtomicLong     allocatedBytes   = new AtomicLong();
+		AtomicLong     responseBytes    = new AtomicLong();
+		AtomicLong     unexpectedStatus = new AtomicLong();
+		CountDownLatch startLatch       = new CountDownLatch(1);
+		CountDownLatch doneLatch        = new CountDownLatch(threads);
+		ThreadMXBean   threadMXBean     = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+		for (int t = 0; t < threads; t++) {
+			final int  threadIndex   = t;
+			final long threadRequest = requests / threads + (t < requests % threads ? 1 : 0);
+			Thread     thread        = new Thread(() -> {
+											try {
+												startLatch.await();
+												long allocated = 0;
+												for (long n = 0; n < threadRequest; n++) {
+													CorpusEntry   entry    = corpus.get((int) ((n * threads + threadIndex) % corpus.size()));
+													BenchRequest  request  = new BenchRequest(entry.method, entry.uri, entry.headers, entry.body);
+													BenchResponse response = new BenchResponse(false);
+
+													long allocatedBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+													long startNanos      = System.nanoTime();
+													servlet.service(request, response);
+													result.latency.record(System.nanoTime() - startNanos);
+													allocated += threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+													responseBytes.addAndGet(response.getBytesWritten());
+													if (entry.expectedStatus != 0 && entry.expectedStatus != response.getStatus())
+														unexpectedStatus.incrementAndGet();
+												}
+												allocatedBytes.addAndGet(allocated);
+											} catch (Throwable e) {
+												e.printStackTrace();
+											} finally {
+												doneLatch.countDown();
+											}
+										}, "bench-" + t);
+			thread.start();
+		}
+
+		long startNanos = System.nanoTime();
+		startLatch.countDown();
+		doneLatch.await();
+		result.elapsedNanos     = System.nanoTime() - startNanos;
+		result.threads          = threads;
+		result.requests         = requests;
+		result.allocatedBytes   = allocatedBytes.get();
+		result.responseBytes    = responseBytes.get();
+		result.unexpectedStatus = unexpectedStatus.get();
+		return result;
+	}
+
+	/**
+	 * @param maxThreads
+	 * @return 1, 2, 4 ... maxThreads
+	 */
+	private static List<Integer> threadCounts(int maxThreads) {
+		List<Integer> list = new ArrayList<>();
+		for (int threads = 1; threads < maxThreads; threads *= 2)
+			list.add(threads);
+		list.add(maxThreads);
+		return list;
+	}
+
+	/**
+	 * Load requests from corpus or dump files
+	 *
+	 * @param logger
+	 * @param files
+	 * @param checkStatus - response status line of corpus entry is expected status
+	 * @return
+	 * @throws Throwable
+	 */
+	private static List<CorpusEntry> loadCorpus(Logger logger, List<String> files, boolean checkStatus) throws Throwable {
+		List<CorpusEntry> corpus = new ArrayList<>();
+		for (ReqResp reqResp : CustomMain.getAllReqResp(logger, files)) {
+			FirstLineReq firstLineReq   = new FirstLineReq(reqResp.request.firstLine);
+			int          expectedStatus = 0;
+			if (checkStatus && reqResp.response.firstLine != null)
+				expectedStatus = new FirstLineResp(reqResp.response.firstLine).getStatus();
+			byte[] body = reqResp.request.body.toByteArray();
+			corpus.add(new CorpusEntry(firstLineReq.getMethod(), firstLineReq.getUri(), reqResp.request.headers, body, expectedStatus));
+		}
+		return corpus;
+	}
+
+	private static String format(Result result) {
+		Histogram.Snapshot snapshot = result.latency.snapshot();
+		return String.format("%7d %10d %12.0f %9.1f %9.1f %9.1f %9.1f %9.1f %12d %10d", //
+				result.threads, //
+				result.requests, //
+				result.requests * 1_000_000_000.0 / result.elapsedNanos, //
+				snapshot.getValueAtQuantile(0.5) / 1000.0, //
+				snapshot.getValueAtQuantile(0.9) / 1000.0, //
+				snapshot.getValueAtQuantile(0.99) / 1000.0, //
+				snapshot.getValueAtQuantile(0.999) / 1000.0, //
+				snapshot.getMax() / 1000.0, //
+				result.allocatedBytes / result.requests, //
+				result.unexpectedStatus);
+	}
+
+	private static Map<String, Object> toMap(Result result) {
+		Histogram.Snapshot  snapshot = result.latency.snapshot();
+		Map<String, Object> map      = new LinkedHashMap<>();
+		map.put("threads", result.threads);
+		map.put("requests", result.requests);
+		map.put("requestsPerSecond", result.requests * 1_000_000_000.0 / result.elapsedNanos);
+		for (double quantile : QUANTILES)
+			map.put("p" + quantile + "Micros", snapshot.getValueAtQuantile(quantile) / 1000.0);
+		map.put("maxMicros", snapshot.getMax() / 1000.0);
+		map.put("allocatedBytesPerRequest", result.allocatedBytes / result.requests);
+		map.put("responseBytes", result.responseBytes);
+		map.put("unexpectedStatus", result.unexpectedStatus);
+		return map;
+	}
+}
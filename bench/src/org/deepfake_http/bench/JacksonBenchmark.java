@@ -0,0 +1,101 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.deepfake_http.common.match.JsonHash;
+import org.deepfake_http.common.utils.JacksonUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Memory file parsing: JSON, YAML and CSV. JSON body matching: canonical hash vs tree parsing
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JacksonBenchmark {
+	private static final int ROWS = 100;
+
+	private String json;
+	private String yaml;
+	private String csv;
+
+	@Setup
+	public void setup() {
+		StringBuilder jsonSb = new StringBuilder("{\"owners\": [");
+		StringBuilder yamlSb = new StringBuilder("---\nowners:\n");
+		StringBuilder csvSb  = new StringBuilder("id,firstName,lastName,city\n");
+		for (int i = 0; i < ROWS; i++) {
+			if (i != 0)
+				jsonSb.append(',');
+			jsonSb.append("{\"id\": ").append(i).append(", \"firstName\": \"First").append(i).append("\", \"lastName\": \"Last").append(i).append("\", \"city\": \"Madison\"}");
+			yamlSb.append("  - id: ").append(i).append("\n    firstName: First").append(i).append("\n    lastName: Last").append(i).append("\n    city: Madison\n");
+			csvSb.append(i).append(",First").append(i).append(",Last").append(i).append(",Madison\n");
+		}
+		json = jsonSb.append("]}").toString();
+		yaml = yamlSb.toString();
+		csv  = csvSb.toString();
+	}
+
+	@Benchmark
+	public JsonNode parseJson() throws JsonProcessingException {
+		return JacksonUtils.parseJsonYamlToMap(json);
+	}
+
+	@Benchmark
+	public JsonNode parseYaml() throws JsonProcessingException {
+		return JacksonUtils.parseJsonYamlToMap(yaml);
+	}
+
+	@Benchmark
+	public JsonNode parseCsv() throws JsonProcessingException {
+		return JacksonUtils.parseJsonYamlToMap(csv);
+	}
+
+	@Benchmark
+	public Long canonicalHashJson() {
+		return JsonHash.hash(json);
+	}
+}
@@ -0,0 +1,151 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.bench;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.deepfake_http.common.match.QueryMatcher;
+import org.deepfake_http.common.match.WildcardMatcher;
+import org.deepfake_http.common.utils.MatchUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ij.util.WildcardMatch;
+
+/**
+ * Request matching: path templates, query strings with wildcards, header values
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchBenchmark {
+	private static final List<String> ACCEPT_VALUES = Arrays.asList("text/html", "application/xhtml+xml", "application/xml;q=0.9", "application/json");
+
+	/* compiled at dump load time */
+	private final WildcardMatcher compiledStar    = WildcardMatcher.compile(true, "*");
+	private final WildcardMatcher compiledPrefix  = WildcardMatcher.compile(true, "application/*");
+	private final WildcardMatcher compiledGeneral = WildcardMatcher.compile(true, "app?ication/*+j?on");
+	private final QueryMatcher    compiledForm    = new QueryMatcher(true, "first_name=?*&last_name=?*&address=*&city=*&telephone=*");
+
+	@Benchmark
+	public boolean matchPathStatic() {
+		return MatchUtils.matchPath("/petclinic/api/vets", "/petclinic/api/vets", new LinkedHashMap<>());
+	}
+
+	@Benchmark
+	public boolean matchPathParams() {
+		return MatchUtils.matchPath("/petclinic/api/owners/{ownerId}/pets/{petId}", "/petclinic/api/owners/7/pets/12", new LinkedHashMap<>());
+	}
+
+	@Benchmark
+	public boolean matchPathMismatch() {
+		return MatchUtils.matchPath("/petclinic/api/owners/{ownerId}/pets/{petId}", "/petclinic/api/vets", new LinkedHashMap<>());
+	}
+
+	@Benchmark
+	public boolean matchQueryExact() {
+		return MatchUtils.matchQuery(true, "lastName=Davis", "lastName=Davis", new LinkedHashMap<>());
+	}
+
+	@Benchmark
+	public boolean matchQueryStar() {
+		return MatchUtils.matchQuery(true, "lastName=*", "lastName=Davis", new LinkedHashMap<>());
+	}
+
+	@Benchmark
+	public boolean matchQueryForm() {
+		Map<String, List<String>> paramMap = new LinkedHashMap<>();
+		return MatchUtils.matchQuery(true, "first_name=?*&last_name=?*&address=*&city=*&telephone=*", "first_name=George&last_name=Franklin&address=110+W.+Liberty+St.&city=Madison&telephone=6085551023", paramMap);
+	}
+
+	@Benchmark
+	public boolean matchQueryNoWildcard() {
+		return MatchUtils.matchQuery(false, "first_name=?*&last_name=?*", "first_name=George&last_name=Franklin", new LinkedHashMap<>());
+	}
+
+	@Benchmark
+	public boolean matchHeaderValueExact() {
+		return MatchUtils.matchHeaderValue(true, "application/json", ACCEPT_VALUES);
+	}
+
+	@Benchmark
+	public boolean matchHeaderValueWildcard() {
+		return MatchUtils.matchHeaderValue(true, "application/*json", ACCEPT_VALUES);
+	}
+
+	@Benchmark
+	public boolean wildcardMatchStar() {
+		return new WildcardMatch().match("Franklin", "*");
+	}
+
+	@Benchmark
+	public boolean wildcardMatchPrefix() {
+		return new WildcardMatch().match("application/json", "application/*");
+	}
+
+	@Benchmark
+	public boolean wildcardMatchGeneral() {
+		return new WildcardMatch().match("application/vnd.api+json", "app?ication/*+j?on");
+	}
+
+	@Benchmark
+	public boolean compiledMatchStar() {
+		return compiledStar.match("Franklin");
+	}
+
+	@Benchmark
+	public boolean compiledMatchPrefix() {
+		return compiledPrefix.match("application/json");
+	}
+
+	@Benchmark
+	public boolean compiledMatchGeneral() {
+		return compiledGeneral.match("application/vnd.api+json");
+	}
+
+	@Benchmark
+	public boolean compiledMatchQueryForm() {
+		Map<String, List<String>> paramMap = new LinkedHashMap<>();
+		return compiledForm.match("first_name=George&last_name=Franklin&address=110+W.+Liberty+St.&city=Madison&telephone=6085551023", paramMap);
+	}
+}
@@ -0,0 +1,104 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.deepfake_http.common.ReqResp;
+import org.deepfake_http.common.utils.ParseDumpUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Dump parsing on synthetic dumps of increasing size
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseDumpBenchmark {
+	@Param({ "10", "100", "1000", "10000" })
+	public int entries;
+
+	private String       text;
+	private List<String> lines;
+
+	@Setup
+	public void setup() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < entries; i++) {
+			switch (i % 3) {
+			case 0:
+				sb.append("GET /api/items/").append(i).append("/{id}?filter=* HTTP/1.1\n");
+				sb.append("Accept: application/json\n\n");
+				sb.append("HTTP/1.1 200 OK\n");
+				sb.append("Content-Type: application/json\n\n");
+				sb.append("{\"id\": ${request.parameters.id[0]}, \"n\": ").append(i).append("}\n\n");
+				break;
+			case 1:
+				sb.append("POST /api/items/").append(i).append(" HTTP/1.1\n");
+				sb.append("Content-Type: application/x-www-form-urlencoded\n\n");
+				sb.append("name=?*&value=*\n\n");
+				sb.append("HTTP/1.1 201 Created\n");
+				sb.append("Content-Type: application/json\n");
+				sb.append("X-Handler-JS: addItem\n\n");
+				break;
+			default:
+				sb.append("PUT /api/items/").append(i).append(" HTTP/1.1\n");
+				sb.append("Content-Type: application/json\n\n");
+				sb.append("{\"name\": \"item").append(i).append("\"}\n\n");
+				sb.append("HTTP/1.1 204 No Content\n\n");
+			}
+		}
+		text  = sb.toString();
+		lines = ParseDumpUtils.readLines(text);
+	}
+
+	@Benchmark
+	public List<String> readLines() {
+		return ParseDumpUtils.readLines(text);
+	}
+
+	@Benchmark
+	public List<ReqResp> parseDump() throws Throwable {
+		return ParseDumpUtils.parseDump("bench.txt", lines);
+	}
+}
@@ -0,0 +1,112 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.bench;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.deepfake_http.common.utils.JacksonUtils;
+import org.deepfake_http.common.utils.TemplateUtils;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ScriptableObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Template processing: static text, single expression, many expressions
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateBenchmark {
+	private static final String STATIC_TEMPLATE = "{\"id\": 1, \"firstName\": \"George\", \"lastName\": \"Franklin\", \"city\": \"Madison\"}";
+	private static final String SIMPLE_TEMPLATE = "{\"id\": ${request.parameters.id[0]}, \"firstName\": \"George\"}";
+
+	private ScriptableObject    scope;
+	private Map<String, Object> dataMap;
+	private String              heavyTemplate;
+
+	@Setup
+	public void setup() throws IOException {
+		Context ctx = Context.enter();
+		ctx.setLanguageVersion(Context.VERSION_1_8);
+		scope = TemplateUtils.createScope(ctx);
+		Context.exit();
+
+		String data = "{\"owners\": [{\"id\": 1, \"firstName\": \"George\", \"lastName\": \"Franklin\"}, {\"id\": 2, \"firstName\": \"Betty\", \"lastName\": \"Davis\"}]}";
+
+		Map<String, Object> requestMap = new LinkedHashMap<>();
+		requestMap.put("method", "GET");
+		requestMap.put("path", "/petclinic/api/owners/1");
+		requestMap.put("parameters", Map.of("id", List.of("1")));
+
+		dataMap = new LinkedHashMap<>();
+		dataMap.put("data", new ObjectMapper().treeToValue(JacksonUtils.parseJsonYamlToMap(data), Object.class));
+		dataMap.put("request", requestMap);
+
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < 50; i++) {
+			if (i != 0)
+				sb.append(',');
+			sb.append("{\"n\": ${").append(i).append(" * 2}, \"owner\": \"${data.owners[").append(i % 2).append("].lastName}\", \"path\": \"${request.path}\"}");
+		}
+		heavyTemplate = sb.append(']').toString();
+	}
+
+	@Benchmark
+	public String processStatic() throws IOException {
+		return TemplateUtils.processTemplate(scope, STATIC_TEMPLATE, dataMap);
+	}
+
+	@Benchmark
+	public String processSimple() throws IOException {
+		return TemplateUtils.processTemplate(scope, SIMPLE_TEMPLATE, dataMap);
+	}
+
+	@Benchmark
+	public String processHeavy() throws IOException {
+		return TemplateUtils.processTemplate(scope, heavyTemplate, dataMap);
+	}
+}
@@ -0,0 +1,169 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.bench;
+
+import java.util.Objects;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.deepfake_http.common.match.WildcardMatcher;
+
+import ij.util.WildcardMatch;
+
+/**
+ * Differential check of {@link WildcardMatcher} against a regular expression reference
+ * and the former <code>ij.util.WildcardMatch</code> based matching.
+ *
+ * Every compiled matcher result must equal the reference. Results differing from
+ * <code>WildcardMatch</code> are counted and the first ones printed: these are the known
+ * backtracking and escape fixes, e.g. <code>*b</code> against <code>bb</code>.
+ * Exit status is 1 if any result differs from the reference or from the expected value of a fixed case.
+ *
+ * <pre>
+ * java -cp bench/bin org.deepfake_http.bench.WildcardCheck [--iterations &lt;number&gt;] [--seed &lt;number&gt;]
+ * </pre>
+ */
+public class WildcardCheck {
+	private static final String ARGS_ITERATIONS = "--iterations";
+	private static final String ARGS_SEED       = "--seed";
+
+	private static final String ALPHABET        = "ab ?*\\";
+	private static final int    MAX_LENGTH      = 7;
+	private static final int    PRINT_BASELINE  = 20;
+
+	/* template, value, expected result, WildcardMatch result */
+	private static final Object[][] CASES = { //
+			{ "*b", "bb", true, false }, //
+			{ "*a", "baa", true, false }, //
+			{ "**a", "aa aa", true, false }, //
+			{ "b*?a", "bbaba", true, false }, //
+			{ "a*b", "abab", true, false }, //
+			{ "a\\", "a", true, true }, //
+			{ "\\*", "*", true, true }, //
+			{ "\\*", "a", false, false }, //
+			{ "a\\\\", "a\\", true, false }, //
+			{ "?\\", "?\\", true, true }, //
+			{ " a* ", "ab", true, true }, //
+			{ "?", "", false, false }, //
+			{ "*", "", true, true }, //
+	};
+
+	public static void main(String[] args) {
+		int  iterations = 1_000_000;
+		long seed       = 1;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals(ARGS_ITERATIONS) && i < args.length - 1)
+				iterations = Integer.parseInt(args[++i]);
+			else if (args[i].equals(ARGS_SEED) && i < args.length - 1)
+				seed = Long.parseLong(args[++i]);
+			else
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+		}
+
+		int failures = 0;
+		for (Object[] c : CASES) {
+			String  template = (String) c[0];
+			String  value    = (String) c[1];
+			boolean compiled = WildcardMatcher.compile(true, template).match(value);
+			boolean baseline = baseline(template, value);
+			System.out.printf("%-8s %-8s compiled: %-5b WildcardMatch: %-5b%n", quote(template), quote(value), compiled, baseline);
+			if (compiled != (boolean) c[2] || baseline != (boolean) c[3] || compiled != reference(template, value)) {
+				System.out.println("    FAILED, expected: " + c[2] + ", WildcardMatch: " + c[3]);
+				failures++;
+			}
+		}
+
+		Random random          = new Random(seed);
+		int    baselineDiffers = 0;
+		for (int i = 0; i < iterations; i++) {
+			String  template  = randomString(random);
+			String  value     = randomString(random);
+			boolean compiled  = WildcardMatcher.compile(true, template).match(value);
+			boolean reference = reference(template, value);
+			if (compiled != reference) {
+				if (failures++ < PRINT_BASELINE)
+					System.out.println("FAILED " + quote(template) + " " + quote(value) + " compiled: " + compiled + ", reference: " + reference);
+			} else if (compiled != baseline(template, value) && baselineDiffers++ < PRINT_BASELINE)
+				System.out.println("WildcardMatch differs: " + quote(template) + " " + quote(value) + " compiled: " + compiled);
+		}
+		System.out.printf("%,d random case(s), %,d differ from WildcardMatch, %,d failure(s)%n", iterations, baselineDiffers, failures);
+		if (failures != 0)
+			System.exit(1);
+	}
+
+	/**
+	 * Former MatchUtils.match(true, template, s)
+	 */
+	private static boolean baseline(String template, String s) {
+		if (Objects.equals(template, s))
+			return true;
+		if ("*".equals(template) && s != null)
+			return true;
+		try {
+			return new WildcardMatch().match(s.strip(), template.strip());
+		} catch (Throwable e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Glob translated to regular expression
+	 */
+	private static boolean reference(String template, String s) {
+		if (template.equals(s) || "*".equals(template))
+			return true;
+		String        stripped = template.strip();
+		StringBuilder sb       = new StringBuilder();
+		for (int i = 0; i < stripped.length(); i++) {
+			char c = stripped.charAt(i);
+			if (c == '\\') {
+				if (i < stripped.length() - 1)
+					sb.append(Pattern.quote(String.valueOf(stripped.charAt(++i))));
+			} else if (c == '*')
+				sb.append(".*");
+			else if (c == '?')
+				sb.append('.');
+			else
+				sb.append(Pattern.quote(String.valueOf(c)));
+		}
+		return Pattern.compile(sb.toString(), Pattern.DOTALL).matcher(s.strip()).matches();
+	}
+
+	private static String randomString(Random random) {
+		int           len = random.nextInt(MAX_LENGTH + 1);
+		StringBuilder sb  = new StringBuilder(len);
+		for (int i = 0; i < len; i++)
+			sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+		return sb.toString();
+	}
+
+	private static String quote(String s) {
+		return '"' + s + '"';
+	}
+}
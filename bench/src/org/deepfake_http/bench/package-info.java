@@ -0,0 +1 @@
+package org.deepfake_http.bench;
\ No newline at end of file
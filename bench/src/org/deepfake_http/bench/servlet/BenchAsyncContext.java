@@ -0,0 +1,144 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.bench.servlet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Async context running everything on the calling thread:
+ * start() runs the task immediately, complete() notifies listeners immediately.
+ * Request processing is finished when servlet service() returns.
+ */
+public class BenchAsyncContext implements AsyncContext {
+	private final HttpServletRequest  request;
+	private final HttpServletResponse response;
+	private final List<AsyncListener> listeners = new ArrayList<>(1);
+
+	private long    timeout;
+	private boolean completed;
+
+	public BenchAsyncContext(HttpServletRequest request, HttpServletResponse response) {
+		this.request  = request;
+		this.response = response;
+	}
+
+	public boolean isCompleted() {
+		return completed;
+	}
+
+	@Override
+	public void complete() {
+		if (completed)
+			throw new IllegalStateException("Already completed");
+		completed = true;
+		AsyncEvent event = new AsyncEvent(this, request, response);
+		for (AsyncListener listener : listeners)
+			try {
+				listener.onComplete(event);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+	}
+
+	@Override
+	public void start(Runnable run) {
+		run.run();
+	}
+
+	@Override
+	public void addListener(AsyncListener listener) {
+		listeners.add(listener);
+	}
+
+	@Override
+	public void addListener(AsyncListener listener, ServletRequest servletRequest, ServletResponse servletResponse) {
+		listeners.add(listener);
+	}
+
+	@Override
+	public <T extends AsyncListener> T createListener(Class<T> clazz) throws ServletException {
+		try {
+			return clazz.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new ServletException(e);
+		}
+	}
+
+	@Override
+	public ServletRequest getRequest() {
+		return request;
+	}
+
+	@Override
+	public ServletResponse getResponse() {
+		return response;
+	}
+
+	@Override
+	public boolean hasOriginalRequestAndResponse() {
+		return true;
+	}
+
+	@Override
+	public void dispatch() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void dispatch(String path) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void dispatch(ServletContext context, String path) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+
+	@Override
+	public long getTimeout() {
+		return timeout;
+	}
+}
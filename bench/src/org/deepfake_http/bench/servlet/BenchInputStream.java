@@ -0,0 +1,82 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.bench.servlet;
+
+import java.io.IOException;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+
+/**
+ * Request body stream, always ready.
+ * Read listener is notified synchronously on the calling thread.
+ */
+public class BenchInputStream extends ServletInputStream {
+	private final byte[] bs;
+	private int          pos;
+
+	public BenchInputStream(byte[] bs) {
+		this.bs = bs;
+	}
+
+	@Override
+	public int read() {
+		return pos < bs.length ? bs[pos++] & 0xFF : -1;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) {
+		if (pos >= bs.length)
+			return -1;
+		int n = Math.min(len, bs.length - pos);
+		System.arraycopy(bs, pos, b, off, n);
+		pos += n;
+		return n;
+	}
+
+	@Override
+	public boolean isFinished() {
+		return pos >= bs.length;
+	}
+
+	@Override
+	public boolean isReady() {
+		return true;
+	}
+
+	@Override
+	public void setReadListener(ReadListener readListener) {
+		try {
+			readListener.onDataAvailable();
+			readListener.onAllDataRead();
+		} catch (IOException e) {
+			readListener.onError(e);
+		}
+	}
+}
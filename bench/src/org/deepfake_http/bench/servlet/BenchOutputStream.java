@@ -0,0 +1,90 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.bench.servlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+/**
+ * Response body stream, always ready.
+ * Write listener is notified synchronously on the calling thread.
+ */
+public class BenchOutputStream extends ServletOutputStream {
+	private final ByteArrayOutputStream baos;
+	private long                        count;
+
+	/**
+	 * @param capture - keep written bytes, otherwise only count them
+	 */
+	public BenchOutputStream(boolean capture) {
+		baos = capture ? new ByteArrayOutputStream() : null;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return written bytes or null if not captured
+	 */
+	public byte[] getBytes() {
+		return baos == null ? null : baos.toByteArray();
+	}
+
+	@Override
+	public void write(int b) {
+		count++;
+		if (baos != null)
+			baos.write(b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		count += len;
+		if (baos != null)
+			baos.write(b, off, len);
+	}
+
+	@Override
+	public boolean isReady() {
+		return true;
+	}
+
+	@Override
+	public void setWriteListener(WriteListener writeListener) {
+		try {
+			writeListener.onWritePossible();
+		} catch (IOException e) {
+			writeListener.onError(e);
+		}
+	}
+}
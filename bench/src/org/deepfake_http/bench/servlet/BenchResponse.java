@@ -0,0 +1,266 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.bench.servlet;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * In-memory response: status, headers and body byte count
+ */
+public class BenchResponse implements HttpServletResponse {
+	private final Map<String, List<String>> headers = new LinkedHashMap<>();
+	private final BenchOutputStream         os;
+
+	private int    status = SC_OK;
+	private String contentType;
+
+	/**
+	 * @param captureBody - keep response body bytes, otherwise only count them
+	 */
+	public BenchResponse(boolean captureBody) {
+		os = new BenchOutputStream(captureBody);
+	}
+
+	/**
+	 * @return response body bytes written
+	 */
+	public long getBytesWritten() {
+		return os.getCount();
+	}
+
+	/**
+	 * @return captured response body or null
+	 */
+	public byte[] getBody() {
+		return os.getBytes();
+	}
+
+	@Override
+	public ServletOutputStream getOutputStream() {
+		return os;
+	}
+
+	@Override
+	public PrintWriter getWriter() {
+		return new PrintWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+	}
+
+	@Override
+	public void setStatus(int sc) {
+		status = sc;
+	}
+
+	@Override
+	@Deprecated
+	public void setStatus(int sc, String sm) {
+		status = sc;
+	}
+
+	@Override
+	public int getStatus() {
+		return status;
+	}
+
+	@Override
+	public void sendError(int sc, String msg) {
+		status = sc;
+	}
+
+	@Override
+	public void sendError(int sc) {
+		status = sc;
+	}
+
+	@Override
+	public void sendRedirect(String location) {
+		status = SC_FOUND;
+		setHeader("Location", location);
+	}
+
+	@Override
+	public void setHeader(String name, String value) {
+		List<String> values = new ArrayList<>(1);
+		values.add(value);
+		headers.put(name, values);
+	}
+
+	@Override
+	public void addHeader(String name, String value) {
+		headers.computeIfAbsent(name, key -> new ArrayList<>(1)).add(value);
+	}
+
+	@Override
+	public void setDateHeader(String name, long date) {
+		setHeader(name, Long.toString(date));
+	}
+
+	@Override
+	public void addDateHeader(String name, long date) {
+		addHeader(name, Long.toString(date));
+	}
+
+	@Override
+	public void setIntHeader(String name, int value) {
+		setHeader(name, Integer.toString(value));
+	}
+
+	@Override
+	public void addIntHeader(String name, int value) {
+		addHeader(name, Integer.toString(value));
+	}
+
+	@Override
+	public boolean containsHeader(String name) {
+		return headers.containsKey(name);
+	}
+
+	@Override
+	public String getHeader(String name) {
+		List<String> values = headers.get(name);
+		return values == null ? null : values.get(0);
+	}
+
+	@Override
+	public Collection<String> getHeaders(String name) {
+		List<String> values = headers.get(name);
+		return values == null ? Collections.emptyList() : values;
+	}
+
+	@Override
+	public Collection<String> getHeaderNames() {
+		return headers.keySet();
+	}
+
+	@Override
+	public void addCookie(Cookie cookie) {
+	}
+
+	@Override
+	public String encodeURL(String url) {
+		return url;
+	}
+
+	@Override
+	public String encodeRedirectURL(String url) {
+		return url;
+	}
+
+	@Override
+	@Deprecated
+	public String encodeUrl(String url) {
+		return url;
+	}
+
+	@Override
+	@Deprecated
+	public String encodeRedirectUrl(String url) {
+		return url;
+	}
+
+	@Override
+	public String getCharacterEncoding() {
+		return "UTF-8";
+	}
+
+	@Override
+	public void setCharacterEncoding(String charset) {
+	}
+
+	@Override
+	public String getContentType() {
+		return contentType;
+	}
+
+	@Override
+	public void setContentType(String type) {
+		contentType = type;
+	}
+
+	@Override
+	public void setContentLength(int len) {
+		setHeader("Content-Length", Integer.toString(len));
+	}
+
+	@Override
+	public void setContentLengthLong(long len) {
+		setHeader("Content-Length", Long.toString(len));
+	}
+
+	@Override
+	public void setBufferSize(int size) {
+	}
+
+	@Override
+	public int getBufferSize() {
+		return 0;
+	}
+
+	@Override
+	public void flushBuffer() throws IOException {
+		os.flush();
+	}
+
+	@Override
+	public void resetBuffer() {
+	}
+
+	@Override
+	public boolean isCommitted() {
+		return os.getCount() > 0;
+	}
+
+	@Override
+	public void reset() {
+		headers.clear();
+		status = SC_OK;
+	}
+
+	@Override
+	public void setLocale(Locale loc) {
+	}
+
+	@Override
+	public Locale getLocale() {
+		return Locale.ENGLISH;
+	}
+}
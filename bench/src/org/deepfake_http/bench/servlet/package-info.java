@@ -0,0 +1 @@
+package org.deepfake_http.bench.servlet;
\ No newline at end of file
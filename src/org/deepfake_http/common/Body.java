@@ -0,0 +1,206 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+
+package org.deepfake_http.common;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.hive.common.util.Murmur3;
+
+/**
+ * Immutable HTTP message body.
+ * Bytes are the primary representation and are written to the socket as is;
+ * the UTF-8 text is decoded on first use and cached for heap bodies.
+ */
+public final class Body {
+	public static final Body EMPTY = new Body(ByteBuffer.allocate(0), "");
+
+	private final ByteBuffer bytes; // never modified, position 0
+
+	private volatile String  text;
+	private volatile int     hash32;
+	private volatile boolean hashed;
+
+	private Body(ByteBuffer bytes, String text) {
+		this.bytes = bytes;
+		this.text  = text;
+	}
+
+	/**
+	 * @param text
+	 * @return body encoded once as UTF-8
+	 */
+	public static Body of(String text) {
+		if (text.isEmpty())
+			return EMPTY;
+		return new Body(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)), text);
+	}
+
+	/**
+	 * @param bs - not copied, must not be modified afterwards
+	 * @return
+	 */
+	public static Body wrap(byte[] bs) {
+		return wrap(bs, 0, bs.length);
+	}
+
+	/**
+	 * @param bs     - not copied, must not be modified afterwards
+	 * @param offset
+	 * @param length
+	 * @return
+	 */
+	public static Body wrap(byte[] bs, int offset, int length) {
+		if (length == 0)
+			return EMPTY;
+		return new Body(ByteBuffer.wrap(bs, offset, length).slice(), null);
+	}
+
+	/**
+	 * @param buffer - heap, direct or mapped buffer; remaining bytes are used, not copied
+	 * @return
+	 */
+	public static Body wrap(ByteBuffer buffer) {
+		if (!buffer.hasRemaining())
+			return EMPTY;
+		return new Body(buffer.slice(), null);
+	}
+
+	/**
+	 * @param buffer - the same bytes in another buffer, e.g. an off-heap copy
+	 * @return body backed by the buffer, the computed hash is kept
+	 */
+	public Body moveTo(ByteBuffer buffer) {
+		if (isEmpty())
+			return EMPTY;
+		Body body = new Body(buffer.slice(), null);
+		if (hashed) {
+			body.hash32 = hash32;
+			body.hashed = true;
+		}
+		return body;
+	}
+
+	/**
+	 * @return size in bytes
+	 */
+	public int size() {
+		return bytes.limit();
+	}
+
+	public boolean isEmpty() {
+		return bytes.limit() == 0;
+	}
+
+	/**
+	 * @return true if the bytes are stored off the Java heap
+	 */
+	public boolean isDirect() {
+		return bytes.isDirect();
+	}
+
+	/**
+	 * @return new buffer view over the body bytes, the content must not be modified
+	 */
+	public ByteBuffer buffer() {
+		return bytes.duplicate();
+	}
+
+	/**
+	 * @return backing array if it holds exactly the body, a copy otherwise
+	 */
+	public byte[] toByteArray() {
+		if (bytes.hasArray() && bytes.arrayOffset() == 0 && bytes.array().length == bytes.limit())
+			return bytes.array();
+		byte[] bs = new byte[bytes.limit()];
+		bytes.duplicate().get(bs);
+		return bs;
+	}
+
+	/**
+	 * @param maxLength
+	 * @return body bytes as by {@link #toByteArray()} or a copy of the first maxLength bytes
+	 */
+	public byte[] toByteArray(int maxLength) {
+		if (bytes.limit() <= maxLength)
+			return toByteArray();
+		byte[] bs = new byte[maxLength];
+		bytes.duplicate().get(bs);
+		return bs;
+	}
+
+	/**
+	 * @return Murmur3 32-bit hash of the bytes, computed once
+	 */
+	public int hash32() {
+		if (!hashed) {
+			if (bytes.hasArray())
+				hash32 = Murmur3.hash32(bytes.array(), bytes.arrayOffset(), bytes.limit(), Murmur3.DEFAULT_SEED);
+			else
+				hash32 = Murmur3.hash32(toByteArray());
+			hashed = true;
+		}
+		return hash32;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash32();
+	}
+
+	/**
+	 * Bodies are equal if they have the same bytes.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof Body))
+			return false;
+		Body other = (Body) obj;
+		return bytes.limit() == other.bytes.limit() && hash32() == other.hash32() && bytes.equals(other.bytes);
+	}
+
+	/**
+	 * @return UTF-8 text, decoded once for heap bodies and on every call for off-heap bodies
+	 */
+	@Override
+	public String toString() {
+		String s = text;
+		if (s == null) {
+			if (bytes.hasArray()) {
+				s    = new String(bytes.array(), bytes.arrayOffset(), bytes.limit(), StandardCharsets.UTF_8);
+				text = s;
+			} else
+				s = StandardCharsets.UTF_8.decode(bytes.duplicate()).toString(); // not cached, keeps the heap free
+		}
+		return s;
+	}
+}
@@ -0,0 +1,183 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+
+package org.deepfake_http.common;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Load-time store for large response bodies.
+ * Bodies from the threshold size are copied to a temporary file and replaced
+ * with read-only memory-mapped views, so they are not kept on the Java heap.
+ * The file is unlinked on close; mapped bodies stay readable until they are
+ * no longer referenced. Every reload writes a new file, the disk space of the
+ * previous one is released only after its mapped bodies are garbage collected.
+ */
+public class BodySpill implements Closeable {
+	private static final Cleaner    CLEANER     = Cleaner.create();
+	private static final AtomicLong MAPPED_SIZE = new AtomicLong(); // closed spill files still mapped
+
+	private final Logger          logger;
+	private final int             threshold;
+	private final Map<Body, Body> spilled = new IdentityHashMap<>(); // shared bodies are checked and copied once
+
+	private FileChannel channel;
+	private SpillFile   spillFile;
+	private int         count;
+	private long        size;
+	private boolean     failed;
+
+	/**
+	 * Disk space of one spill file, held while any of its bodies is mapped
+	 */
+	private static final class SpillFile {
+		private int     mappings;
+		private long    size;
+		private boolean closed;
+
+		synchronized void mapped() {
+			mappings++;
+		}
+
+		synchronized void unmapped() {
+			if (--mappings == 0 && closed)
+				MAPPED_SIZE.addAndGet(-size);
+		}
+
+		synchronized void closed(long size) {
+			this.size   = size;
+			this.closed = true;
+			if (mappings != 0)
+				MAPPED_SIZE.addAndGet(size);
+		}
+	}
+
+	/**
+	 * @param logger
+	 * @param threshold - min body size in bytes, 0 - disabled
+	 */
+	public BodySpill(Logger logger, int threshold) {
+		this.logger    = logger;
+		this.threshold = threshold;
+	}
+
+	/**
+	 * @param body
+	 * @return off-heap body with the same bytes, or the body itself if it is small,
+	 *         has template expressions or the spill file is not available
+	 */
+	public Body spill(Body body) {
+		if (threshold <= 0 || failed || body.size() < threshold || body.isDirect())
+			return body;
+		Body moved = spilled.get(body);
+		if (moved != null)
+			return moved;
+		if (hasTemplate(body.buffer())) { // processed on every request
+			spilled.put(body, body);
+			return body;
+		}
+		try {
+			if (channel == null) {
+				Path file = Files.createTempFile("deepfake-http-", ".spill");
+				channel   = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+				spillFile = new SpillFile();
+			}
+			body.hash32(); // computed while the bytes are on the heap
+			long       position = size;
+			ByteBuffer src      = body.buffer();
+			while (src.hasRemaining())
+				size += channel.write(src, size);
+			ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, body.size());
+			SpillFile  file   = spillFile;
+			file.mapped();
+			CLEANER.register(mapped, file::unmapped); // views of the body keep the mapped buffer reachable
+			moved = body.moveTo(mapped);
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Response bodies are kept on the heap, spill file failed: " + e.getMessage());
+			failed = true;
+			return body;
+		}
+		spilled.put(body, moved);
+		count++;
+		return moved;
+	}
+
+	/**
+	 * @return number of bodies moved off heap
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * @return bytes moved off heap
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * @return bytes of closed spill files (of this and earlier reloads) still kept on disk by mapped bodies
+	 */
+	public static long getMappedSize() {
+		return MAPPED_SIZE.get();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (channel != null) {
+			channel.close();
+			spillFile.closed(size);
+		}
+	}
+
+	/**
+	 * @param bs
+	 * @return true if the bytes contain "${"
+	 */
+	private static boolean hasTemplate(ByteBuffer bs) {
+		int limit = bs.limit() - 1;
+		for (int i = 0; i < limit; i++)
+			if (bs.get(i) == '$' && bs.get(i + 1) == '{')
+				return true;
+		return false;
+	}
+}
@@ -0,0 +1,98 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+
+package org.deepfake_http.common;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Load-time deduplication of dump entries.
+ * Bodies with the same bytes and equal header lines are stored once and
+ * shared by all entries. The pool itself is only needed while loading.
+ */
+public class ContentPool {
+	private final Map<Body, Body>     bodies  = new HashMap<>(); // keyed by content hash and bytes
+	private final Map<String, String> strings = new HashMap<>();
+
+	/**
+	 * @param body
+	 * @return canonical body with the same bytes
+	 */
+	public Body intern(Body body) {
+		if (body.isEmpty())
+			return Body.EMPTY;
+		Body canonical = bodies.putIfAbsent(body, body);
+		return canonical == null ? body : canonical;
+	}
+
+	/**
+	 * @param s
+	 * @return canonical equal string
+	 */
+	public String intern(String s) {
+		if (s == null)
+			return null;
+		String canonical = strings.putIfAbsent(s, s);
+		return canonical == null ? s : canonical;
+	}
+
+	/**
+	 * Replace first lines, header lines and bodies of the entry with their canonical copies
+	 *
+	 * @param reqResp
+	 */
+	public void intern(ReqResp reqResp) {
+		intern(reqResp.request);
+		intern(reqResp.response);
+	}
+
+	/**
+	 * @return number of distinct bodies
+	 */
+	public int getBodyCount() {
+		return bodies.size();
+	}
+
+	/**
+	 * @return number of distinct strings
+	 */
+	public int getStringCount() {
+		return strings.size();
+	}
+
+	private void intern(R r) {
+		r.firstLine = intern(r.firstLine);
+		List<String> headers = r.headers;
+		for (int i = 0; i < headers.size(); i++)
+			headers.set(i, intern(headers.get(i)));
+		r.body = intern(r.body);
+	}
+}
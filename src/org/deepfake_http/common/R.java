@@ -34,5 +34,5 @@ public class R {
 	public int          lineNumber;
 	public String       firstLine;
 	public List<String> headers = new ArrayList<>();
-	public String       body    = new String();
+	public Body         body    = Body.EMPTY;
 }
@@ -0,0 +1,245 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.cgi;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * CGI/XGI program execution pipeline:
+ * stdin is fed and stderr is drained concurrently with reading stdout,
+ * headers are handed over as soon as the blank line arrives and the body is streamed after them.
+ */
+public class CgiRunner {
+
+	private static final int BUF_SIZE = 8192;
+
+	private static final ExecutorService ioExecutor = Executors.newCachedThreadPool(r -> {
+		Thread thread = new Thread(r, "cgi-io");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private static final ScheduledExecutorService watchdogExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "cgi-watchdog");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * Run program once (classic spawn-per-request mode)
+	 *
+	 * @param logger
+	 * @param prog      - command line
+	 * @param env       - CGI environment
+	 * @param stdinIs   - data for program stdin, closed by this method
+	 * @param xgi       - program output starts with status line
+	 * @param timeout   - wall-clock timeout in milliseconds, 0 - no timeout
+	 * @param maxOutput - max stdout bytes
+	 * @param handler
+	 * @return body bytes count
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public static long run(Logger logger, String prog, Map<String, String> env, InputStream stdinIs, boolean xgi, long timeout, long maxOutput, ICgiOutputHandler handler) throws IOException, InterruptedException {
+		ProcessBuilder pb = CgiUtils.createProcessBuilder(prog);
+		pb.environment().putAll(env);
+		Process process;
+		try {
+			process = pb.start();
+		} catch (IOException e) {
+			stdinIs.close();
+			throw e;
+		}
+
+		AtomicBoolean      timedOut = new AtomicBoolean();
+		ScheduledFuture<?> watchdog = null;
+		if (timeout > 0)
+			watchdog = watchdogExecutor.schedule(() -> {
+				timedOut.set(true);
+				destroyProcessTree(process);
+			}, timeout, TimeUnit.MILLISECONDS);
+
+		Future<?> feeder = ioExecutor.submit(() -> {
+			try (InputStream is = stdinIs; OutputStream os = process.getOutputStream()) {
+				is.transferTo(os);
+			} catch (IOException e) {
+				// program exited or closed stdin without reading the whole input
+			}
+		});
+		ioExecutor.submit(() -> {
+			try (BufferedReader br = new BufferedReader(new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8))) {
+				for (String line; (line = br.readLine()) != null;)
+					logger.log(Level.WARNING, MessageFormat.format("CGI program: {0} stderr: {1}", prog, line));
+			} catch (IOException e) {
+				// process destroyed
+			}
+		});
+
+		try (InputStream is = process.getInputStream()) {
+			long len      = parseOutput(is, xgi, maxOutput, handler);
+			int  exitCode = process.waitFor();
+			if (timedOut.get())
+				throw new CgiTimeoutException(MessageFormat.format("CGI program: {0} timed out after {1} ms", prog, Long.toString(timeout)));
+			if (exitCode != 0)
+				logger.log(Level.WARNING, MessageFormat.format("CGI program: {0} ended with exit code: {1}", prog, exitCode));
+			return len;
+		} catch (IOException e) {
+			if (timedOut.get())
+				throw new CgiTimeoutException(MessageFormat.format("CGI program: {0} timed out after {1} ms", prog, Long.toString(timeout)));
+			throw e;
+		} finally {
+			if (watchdog != null)
+				watchdog.cancel(false);
+			feeder.cancel(true);
+			stdinIs.close(); // the feeder may not have started
+			destroyProcessTree(process);
+		}
+	}
+
+	/**
+	 * Run request on persistent worker
+	 *
+	 * @param pool
+	 * @param env
+	 * @param stdinIs   - closed by this method
+	 * @param xgi
+	 * @param timeout
+	 * @param maxOutput
+	 * @param handler
+	 * @return body bytes count
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public static long run(CgiWorkerPool pool, Map<String, String> env, InputStream stdinIs, boolean xgi, long timeout, long maxOutput, ICgiOutputHandler handler) throws IOException, InterruptedException {
+		byte[] inBs;
+		try (stdinIs) {
+			inBs = stdinIs.readAllBytes();
+		}
+		byte[] outBs = pool.run(env, inBs, timeout, maxOutput);
+		return parseOutput(new ByteArrayInputStream(outBs), xgi, maxOutput, handler);
+	}
+
+	/**
+	 * Run program and collect the whole output
+	 *
+	 * @param stdinIs      - closed by this method
+	 * @param firstLineArr - XGI status line (out)
+	 * @param headers      - header lines (out)
+	 * @return body
+	 */
+	public static byte[] runBuffered(Logger logger, CgiWorkerPools pools, String prog, Map<String, String> env, InputStream stdinIs, boolean xgi, long timeout, long maxOutput, String[] firstLineArr, List<String> headers) throws IOException, InterruptedException {
+		ByteArrayOutputStream baos    = new ByteArrayOutputStream();
+		ICgiOutputHandler     handler = (firstLine, headerLines) -> {
+											firstLineArr[0] = firstLine;
+											headers.addAll(headerLines);
+											return baos;
+										};
+		if (pools == null)
+			run(logger, prog, env, stdinIs, xgi, timeout, maxOutput, handler);
+		else
+			run(pools.getPool(prog), env, stdinIs, xgi, timeout, maxOutput, handler);
+		return baos.toByteArray();
+	}
+
+	static void destroyProcessTree(Process process) {
+		process.descendants().forEach(ProcessHandle::destroyForcibly);
+		process.destroyForcibly();
+	}
+
+	static ScheduledFuture<?> schedule(Runnable runnable, long timeout) {
+		return watchdogExecutor.schedule(runnable, timeout, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Parse [status line,] headers and blank line, then stream body to handler
+	 *
+	 * @return body bytes count
+	 */
+	private static long parseOutput(InputStream is, boolean xgi, long maxOutput, ICgiOutputHandler handler) throws IOException {
+		long         total     = 0;
+		String       firstLine = null;
+		List<String> headers   = new ArrayList<>();
+
+		ByteArrayOutputStream lineBaos = new ByteArrayOutputStream();
+		boolean               first    = true;
+		while (true) {
+			int b = is.read();
+			if (b != -1 && ++total > maxOutput)
+				throw new IOException(MessageFormat.format("CGI output exceeds {0} bytes", Long.toString(maxOutput)));
+			if (b != -1 && b != '\n') {
+				lineBaos.write(b);
+				continue;
+			}
+			String line = lineBaos.toString(StandardCharsets.UTF_8).strip();
+			lineBaos.reset();
+			if (first && xgi) {
+				firstLine = line;
+				first     = false;
+			} else if (line.isEmpty())
+				break; // end of headers (or end of output)
+			else
+				headers.add(line);
+			if (b == -1)
+				break;
+		}
+
+		OutputStream os  = handler.onHeaders(firstLine, headers);
+		long         len = 0;
+		byte[]       buf = new byte[BUF_SIZE];
+		for (int n; (n = is.read(buf)) != -1;) {
+			total += n;
+			if (total > maxOutput)
+				throw new IOException(MessageFormat.format("CGI output exceeds {0} bytes", Long.toString(maxOutput)));
+			os.write(buf, 0, n);
+			len += n;
+		}
+		os.flush();
+		return len;
+	}
+}
@@ -0,0 +1,126 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.cgi;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+
+public class CgiUtils {
+	public static final boolean WINDOWS_OS = System.getProperty("os.name").toLowerCase(Locale.ENGLISH).startsWith("windows");
+
+	/**
+	 * Max length of netstring length prefix (decimal digits)
+	 */
+	private static final int MAX_NETSTRING_LENGTH_DIGITS = 10;
+
+	/**
+	 * Create process builder for CGI/XGI program
+	 *
+	 * @param prog - command line
+	 * @return
+	 */
+	public static ProcessBuilder createProcessBuilder(String prog) {
+		String[] command;
+		if (WINDOWS_OS)
+			command = new String[] { "cmd.exe", "/c", prog };
+		else
+			command = new String[] { "sh", "-c", prog };
+		return new ProcessBuilder()                                     //
+				.directory(new File(System.getProperty("user.home")))   //
+				.command(command);                                      //
+	}
+
+	/**
+	 * Serialize environment map to NUL separated NAME=VALUE pairs
+	 *
+	 * @param env
+	 * @return
+	 */
+	public static byte[] envToBytes(Map<String, String> env) {
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, String> entry : env.entrySet()) {
+			sb.append(entry.getKey());
+			sb.append('=');
+			if (entry.getValue() != null)
+				sb.append(entry.getValue());
+			sb.append('\0');
+		}
+		return sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Write netstring (https://cr.yp.to/proto/netstrings.txt): "<length>:<bytes>,"
+	 *
+	 * @param os
+	 * @param bs
+	 * @throws IOException
+	 */
+	public static void writeNetstring(OutputStream os, byte[] bs) throws IOException {
+		os.write(Integer.toString(bs.length).getBytes(StandardCharsets.US_ASCII));
+		os.write(':');
+		os.write(bs);
+		os.write(',');
+	}
+
+	/**
+	 * Read netstring (https://cr.yp.to/proto/netstrings.txt): "<length>:<bytes>,"
+	 *
+	 * @param is
+	 * @param maxLength - max payload length
+	 * @return
+	 * @throws IOException
+	 */
+	public static byte[] readNetstring(InputStream is, long maxLength) throws IOException {
+		long len    = 0;
+		int  digits = 0;
+		while (true) {
+			int b = is.read();
+			if (b == -1)
+				throw new EOFException("Unexpected end of netstring");
+			if (b == ':')
+				break;
+			if (b < '0' || b > '9' || ++digits > MAX_NETSTRING_LENGTH_DIGITS)
+				throw new IOException("Bad netstring length");
+			len = len * 10 + (b - '0');
+		}
+		if (len > maxLength || len > Integer.MAX_VALUE - 8)
+			throw new IOException("Netstring too long: " + len);
+		byte[] bs = is.readNBytes((int) len);
+		if (bs.length != len || is.read() != ',')
+			throw new EOFException("Unexpected end of netstring");
+		return bs;
+	}
+
+}
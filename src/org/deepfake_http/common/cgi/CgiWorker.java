@@ -0,0 +1,102 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.cgi;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ProcessBuilder.Redirect;
+import java.util.Map;
+
+/**
+ * Long-lived CGI/XGI program process.
+ *
+ * Worker protocol (all frames are netstrings, https://cr.yp.to/proto/netstrings.txt):
+ *
+ * request  (stdin):  <env netstring><body netstring>
+ *                    env  - NUL separated NAME=VALUE pairs (RFC 3875 meta-variables)
+ *                    body - request body (CGI) or full raw request (XGI)
+ * response (stdout): <output netstring>
+ *                    output - exactly what a classic CGI/XGI program writes to stdout
+ *
+ * The worker processes requests one by one and must not exit between them.
+ */
+public class CgiWorker {
+
+	private String  prog;
+	private Process process;
+
+	private OutputStream stdin;
+	private InputStream  stdout;
+
+	public CgiWorker(String prog) throws IOException {
+		this.prog = prog;
+
+		ProcessBuilder pb = CgiUtils.createProcessBuilder(prog);
+		pb.redirectError(Redirect.INHERIT); // long-lived process, stderr goes straight to the server console
+		process = pb.start();
+		stdin   = new BufferedOutputStream(process.getOutputStream());
+		stdout  = new BufferedInputStream(process.getInputStream());
+	}
+
+	/**
+	 * Send request frame and wait for response frame
+	 *
+	 * @param env
+	 * @param bs
+	 * @param maxOutput - max response length
+	 * @return
+	 * @throws IOException
+	 */
+	public byte[] exchange(Map<String, String> env, byte[] bs, long maxOutput) throws IOException {
+		CgiUtils.writeNetstring(stdin, CgiUtils.envToBytes(env));
+		CgiUtils.writeNetstring(stdin, bs);
+		stdin.flush();
+		return CgiUtils.readNetstring(stdout, maxOutput);
+	}
+
+	public boolean isAlive() {
+		return process.isAlive();
+	}
+
+	public int exitValue() {
+		return process.exitValue();
+	}
+
+	public void destroy() {
+		CgiRunner.destroyProcessTree(process);
+	}
+
+	@Override
+	public String toString() {
+		return prog + " (pid: " + process.pid() + ')';
+	}
+}
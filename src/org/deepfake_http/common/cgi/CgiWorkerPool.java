@@ -0,0 +1,148 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.cgi;
+
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fixed size pool of persistent workers for a single CGI/XGI program
+ */
+public class CgiWorkerPool {
+
+	private Logger logger;
+	private String prog;
+
+	private CgiWorker[]            workers;
+	private BlockingQueue<Integer> idleSlots;
+
+	private volatile boolean closed;
+
+	public CgiWorkerPool(Logger logger, String prog, int size) {
+		this.logger = logger;
+		this.prog   = prog;
+
+		workers   = new CgiWorker[size];
+		idleSlots = new ArrayBlockingQueue<>(size);
+		for (int i = 0; i < size; i++)
+			idleSlots.add(i);
+	}
+
+	/**
+	 * Process request with an idle worker (blocks while all workers are busy)
+	 *
+	 * @param env
+	 * @param bs
+	 * @param timeout   - wall-clock timeout in milliseconds, 0 - no timeout
+	 * @param maxOutput
+	 * @return
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public byte[] run(Map<String, String> env, byte[] bs, long timeout, long maxOutput) throws IOException, InterruptedException {
+		int slot = idleSlots.take();
+		try {
+			if (closed)
+				throw new IOException(MessageFormat.format("CGI worker pool for program: {0} is closed", prog));
+			CgiWorker          worker   = ensureWorker(slot);
+			AtomicBoolean      timedOut = new AtomicBoolean();
+			ScheduledFuture<?> watchdog = null;
+			if (timeout > 0)
+				watchdog = CgiRunner.schedule(() -> {
+					timedOut.set(true);
+					worker.destroy();
+				}, timeout);
+			try {
+				return worker.exchange(env, bs, maxOutput);
+			} catch (IOException e) {
+				/* broken protocol state, the worker can't be reused */
+				worker.destroy();
+				workers[slot] = null;
+				if (timedOut.get())
+					throw new CgiTimeoutException(MessageFormat.format("CGI worker: {0} timed out after {1} ms", worker, Long.toString(timeout)));
+				throw e;
+			} finally {
+				if (watchdog != null)
+					watchdog.cancel(false);
+			}
+		} finally {
+			idleSlots.add(slot);
+		}
+	}
+
+	/**
+	 * Restart exited idle workers
+	 */
+	public void checkHealth() {
+		for (int slot = 0; slot < workers.length; slot++) {
+			if (!idleSlots.remove(slot))
+				continue; // busy
+			try {
+				CgiWorker worker = workers[slot];
+				if (worker != null && !worker.isAlive()) {
+					logger.log(Level.WARNING, MessageFormat.format("CGI worker: {0} exited with code: {1}. Restarting.", worker, worker.exitValue()));
+					workers[slot] = null;
+					ensureWorker(slot);
+				}
+			} catch (IOException e) {
+				logger.log(Level.WARNING, MessageFormat.format("CGI worker for program: {0} failed to start: {1}", prog, e.getMessage()));
+			} finally {
+				idleSlots.add(slot);
+			}
+		}
+	}
+
+	public void close() {
+		closed = true;
+		for (int slot = 0; slot < workers.length; slot++) {
+			CgiWorker worker = workers[slot];
+			if (worker != null)
+				worker.destroy();
+			workers[slot] = null;
+		}
+	}
+
+	private CgiWorker ensureWorker(int slot) throws IOException {
+		CgiWorker worker = workers[slot];
+		if (worker == null || !worker.isAlive()) {
+			if (worker != null)
+				worker.destroy();
+			worker        = new CgiWorker(prog);
+			workers[slot] = worker;
+		}
+		return worker;
+	}
+}
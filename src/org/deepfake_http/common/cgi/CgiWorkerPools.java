@@ -0,0 +1,76 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.cgi;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Persistent CGI/XGI worker pools (one pool per program command line) with periodic health checks
+ */
+public class CgiWorkerPools implements Runnable {
+
+	private static final long HEALTH_CHECK_INTERVAL_MS = 1000;
+
+	private Logger logger;
+	private int    poolSize;
+
+	private Map<String /* prog */, CgiWorkerPool> poolsMap = new ConcurrentHashMap<>();
+
+	private volatile boolean closed;
+
+	public CgiWorkerPools(Logger logger, int poolSize) {
+		this.logger   = logger;
+		this.poolSize = poolSize;
+	}
+
+	public CgiWorkerPool getPool(String prog) {
+		return poolsMap.computeIfAbsent(prog, p -> new CgiWorkerPool(logger, p, poolSize));
+	}
+
+	public void close() {
+		closed = true;
+		for (CgiWorkerPool pool : poolsMap.values())
+			pool.close();
+	}
+
+	@Override
+	public void run() {
+		while (!closed) {
+			try {
+				Thread.sleep(HEALTH_CHECK_INTERVAL_MS);
+			} catch (InterruptedException e) {
+				break;
+			}
+			for (CgiWorkerPool pool : poolsMap.values())
+				pool.checkHealth();
+		}
+	}
+}
@@ -0,0 +1 @@
+package org.deepfake_http.common.cgi;
\ No newline at end of file
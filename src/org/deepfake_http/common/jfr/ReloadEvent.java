@@ -0,0 +1,77 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Dump, JavaScript and data files reload
+ */
+@Name("deepfake.Reload")
+@Label("Reload")
+@Category({ "DeepfakeHTTP", "Server" })
+@Description("Dump, JavaScript and data files reload")
+@StackTrace(false)
+public class ReloadEvent extends Event {
+	@Label("Dump Files")
+	public int dumpFiles;
+
+	@Label("JavaScript Files")
+	public int jsFiles;
+
+	@Label("Dump Entries")
+	public int entries;
+
+	@Label("Distinct Bodies")
+	@Description("Entry bodies left after deduplication")
+	public int distinctBodies;
+
+	@Label("Distinct Lines")
+	@Description("First and header lines left after deduplication")
+	public int distinctLines;
+
+	@Label("Spilled Bodies")
+	@Description("Response bodies moved off heap")
+	public int spilledBodies;
+
+	@Label("Spilled Bytes")
+	@DataAmount
+	public long spilledBytes;
+
+	@Label("Mapped Spill Bytes")
+	@Description("Spill files of this and earlier reloads kept on disk until their bodies are garbage collected")
+	@DataAmount
+	public long mappedBytes;
+}
@@ -0,0 +1 @@
+package org.deepfake_http.common.jfr;
\ No newline at end of file
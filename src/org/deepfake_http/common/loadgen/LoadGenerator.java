@@ -0,0 +1,289 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.loadgen;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.deepfake_http.common.Body;
+import org.deepfake_http.common.FirstLineReq;
+import org.deepfake_http.common.Header;
+import org.deepfake_http.common.ReqResp;
+import org.deepfake_http.common.metrics.Histogram;
+import org.deepfake_http.common.utils.HttpPathUtils;
+
+/**
+ * HTTP load generator replaying dump or collected requests.
+ *
+ * Open loop (rate > 0): requests are sent on a fixed schedule regardless of responses,
+ * response time is measured from the scheduled send time, so server stalls are not hidden.
+ * Closed loop (rate = 0): fixed number of requests in flight, each response triggers the next request,
+ * response time is corrected for coordinated omission only if the expected interval between requests is given.
+ */
+public class LoadGenerator {
+	/* set by HttpClient itself */
+	private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "expect", "host", "upgrade");
+
+	private static final double[] QUANTILES      = { 0.5, 0.9, 0.99, 0.999 };
+	private static final String[] QUANTILE_NAMES = { "p50", "p90", "p99", "p999" };
+
+	private static final long DRAIN_TIMEOUT_MS = 30_000;
+
+	private final Logger            logger;
+	private final String            target;
+	private final List<HttpRequest> requests;
+	private final int               rate;
+	private final int               concurrency;
+	private final long              durationNanos;
+	private final long              intervalNanos;
+	private final HttpClient        client;
+
+	private final Histogram                            serviceTime  = new Histogram(); // from actual send
+	private final Histogram                            responseTime = new Histogram(); // from scheduled send (open loop)
+	private final LongAdder                            errors       = new LongAdder();
+	private final LongAdder                            bytes        = new LongAdder();
+	private final Map<Integer, LongAdder>              statuses     = new ConcurrentHashMap<>();
+	private final AtomicLong                           sequence     = new AtomicLong();
+	private final AtomicLong                           inFlight     = new AtomicLong();
+	private final ConcurrentHashMap<String, LongAdder> errorTypes   = new ConcurrentHashMap<>();
+
+	/**
+	 * @param logger
+	 * @param target      - base URL, e.g. http://localhost:8080
+	 * @param reqResps    - requests to replay in round robin order
+	 * @param rate        - requests per second (open loop), 0 - closed loop
+	 * @param concurrency - requests in flight (closed loop)
+	 * @param duration    - seconds
+	 * @param interval    - expected interval between requests in microseconds (closed loop), 0 - no correction
+	 * @throws Exception
+	 */
+	public LoadGenerator(Logger logger, String target, List<ReqResp> reqResps, int rate, int concurrency, int duration, int interval) throws Exception {
+		this.logger        = logger;
+		this.target        = target.endsWith("/") ? target.substring(0, target.length() - 1) : target;
+		this.rate          = rate;
+		this.concurrency   = Math.max(1, concurrency);
+		this.durationNanos = TimeUnit.SECONDS.toNanos(duration);
+		this.intervalNanos = TimeUnit.MICROSECONDS.toNanos(interval);
+		this.client        = HttpClient.newBuilder() //
+				.version(HttpClient.Version.HTTP_1_1) //
+				.connectTimeout(Duration.ofSeconds(10)) //
+				.followRedirects(HttpClient.Redirect.NEVER) //
+				.build();
+
+		requests = new ArrayList<>(reqResps.size());
+		for (ReqResp reqResp : reqResps) {
+			try {
+				requests.add(createRequest(reqResp));
+			} catch (Exception e) {
+				logger.log(Level.WARNING, "Request skipped. Dump file: {0}. Line number: {1}. Message: {2}", new Object[] { reqResp.dumpFile, reqResp.request.lineNumber, e.getMessage() });
+			}
+		}
+		if (requests.isEmpty())
+			throw new IllegalArgumentException("No requests to send");
+	}
+
+	/**
+	 * Run load and wait for responses
+	 *
+	 * @return report
+	 * @throws InterruptedException
+	 */
+	public Map<String, Object> run() throws InterruptedException {
+		logger.log(Level.INFO, "Sending {0} request(s) to {1} for {2} s: {3}", new Object[] { requests.size(), target, TimeUnit.NANOSECONDS.toSeconds(durationNanos), rate > 0 ? rate + " req/s (open loop)" : concurrency + " in flight (closed loop)" });
+		long startNanos = System.nanoTime();
+		if (rate > 0)
+			runOpenLoop(startNanos);
+		else
+			runClosedLoop(startNanos);
+		long elapsedNanos = System.nanoTime() - startNanos;
+		return report(elapsedNanos);
+	}
+
+	private void runOpenLoop(long startNanos) throws InterruptedException {
+		long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+		long deadline      = startNanos + durationNanos;
+		for (long n = 0;; n++) {
+			long scheduledNanos = startNanos + n * intervalNanos;
+			if (scheduledNanos >= deadline)
+				break;
+			long delay;
+			while ((delay = scheduledNanos - System.nanoTime()) > 0)
+				LockSupport.parkNanos(delay);
+			send(scheduledNanos, null);
+		}
+		drain();
+	}
+
+	private void runClosedLoop(long startNanos) throws InterruptedException {
+		long           deadline = startNanos + durationNanos;
+		CountDownLatch done     = new CountDownLatch(concurrency);
+		for (int i = 0; i < concurrency; i++)
+			sendNext(deadline, done);
+		done.await();
+	}
+
+	/**
+	 * Closed loop: send next request when previous one completes
+	 */
+	private void sendNext(long deadline, CountDownLatch done) {
+		long nowNanos = System.nanoTime();
+		if (nowNanos >= deadline) {
+			done.countDown();
+			return;
+		}
+		send(nowNanos, () -> sendNext(deadline, done));
+	}
+
+	/**
+	 * @param scheduledNanos - intended send time
+	 * @param next           - called on completion (closed loop) or null
+	 */
+	private void send(long scheduledNanos, Runnable next) {
+		HttpRequest request   = requests.get((int) (sequence.getAndIncrement() % requests.size()));
+		long        sendNanos = System.nanoTime();
+		inFlight.incrementAndGet();
+		client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).whenComplete((response, e) -> {
+			long nowNanos = System.nanoTime();
+			if (e != null) {
+				errors.increment();
+				Throwable cause = e.getCause() == null ? e : e.getCause();
+				errorTypes.computeIfAbsent(cause.getClass().getSimpleName(), key -> new LongAdder()).increment();
+			} else {
+				serviceTime.record(nowNanos - sendNanos);
+				responseTime.record(nowNanos - scheduledNanos);
+				statuses.computeIfAbsent(response.statusCode(), key -> new LongAdder()).increment();
+				bytes.add(response.body().length);
+			}
+			inFlight.decrementAndGet();
+			if (next != null)
+				next.run();
+		});
+	}
+
+	/**
+	 * Open loop: wait for requests in flight
+	 */
+	private void drain() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MS;
+		while (inFlight.get() > 0 && System.currentTimeMillis() < deadline)
+			Thread.sleep(10);
+	}
+
+	private HttpRequest createRequest(ReqResp reqResp) throws Exception {
+		FirstLineReq firstLineReq = new FirstLineReq(reqResp.request.firstLine);
+		String       uriStr       = firstLineReq.getUri();
+
+		URI uri;
+		try {
+			uri = URI.create(target + uriStr);
+		} catch (IllegalArgumentException e) {
+			/* dump URI with templates or wildcards, quote illegal characters */
+			URI    base  = URI.create(target);
+			String query = HttpPathUtils.extractQueryStringFromUri(uriStr);
+			uri = new URI(base.getScheme(), base.getAuthority(), base.getPath() + HttpPathUtils.extractPathFromUri(uriStr), query.isEmpty() ? null : query, null);
+		}
+
+		Body                      body      = reqResp.request.body;
+		HttpRequest.BodyPublisher publisher = body.isEmpty() ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofByteArray(body.toByteArray());
+		HttpRequest.Builder       builder   = HttpRequest.newBuilder(uri).method(firstLineReq.getMethod(), publisher);
+		for (String headerStr : reqResp.request.headers) {
+			Header header = new Header(headerStr);
+			if (RESTRICTED_HEADERS.contains(header.name.toLowerCase(Locale.ENGLISH)))
+				continue;
+			try {
+				builder.header(header.name, header.value);
+			} catch (IllegalArgumentException e) {
+				logger.log(Level.FINE, "Header skipped: {0}", headerStr);
+			}
+		}
+		return builder.build();
+	}
+
+	private Map<String, Object> report(long elapsedNanos) {
+		Histogram.Snapshot serviceSnapshot  = serviceTime.snapshot();
+		Histogram.Snapshot responseSnapshot = responseTime.snapshot();
+		if (rate <= 0)
+			responseSnapshot = serviceSnapshot.correctedForCoordinatedOmission(intervalNanos);
+
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put("target", target);
+		map.put("model", rate > 0 ? "open" : "closed");
+		if (rate > 0)
+			map.put("rate", rate);
+		else
+			map.put("concurrency", concurrency);
+		map.put("durationSeconds", elapsedNanos / 1_000_000_000.0);
+		map.put("requests", serviceSnapshot.getCount() + errors.sum());
+		map.put("responses", serviceSnapshot.getCount());
+		map.put("errors", errors.sum());
+		if (!errorTypes.isEmpty()) {
+			Map<String, Long> errorTypesMap = new TreeMap<>();
+			for (Map.Entry<String, LongAdder> entry : errorTypes.entrySet())
+				errorTypesMap.put(entry.getKey(), entry.getValue().sum());
+			map.put("errorTypes", errorTypesMap);
+		}
+		map.put("throughput", serviceSnapshot.getCount() * 1_000_000_000.0 / elapsedNanos);
+		map.put("bytes", bytes.sum());
+		Map<String, Long> statusesMap = new TreeMap<>();
+		for (Map.Entry<Integer, LongAdder> entry : statuses.entrySet())
+			statusesMap.put(Integer.toString(entry.getKey()), entry.getValue().sum());
+		map.put("statuses", statusesMap);
+		map.put("serviceTime", latencyToMap(serviceSnapshot));
+		map.put("responseTime", latencyToMap(responseSnapshot)); // coordinated omission corrected (open loop or closed loop with interval)
+		return map;
+	}
+
+	private static Map<String, Object> latencyToMap(Histogram.Snapshot snapshot) {
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put("count", snapshot.getCount());
+		map.put("meanMicros", snapshot.getCount() == 0 ? 0 : snapshot.getSum() / snapshot.getCount() / 1000);
+		for (int i = 0; i < QUANTILES.length; i++)
+			map.put(QUANTILE_NAMES[i] + "Micros", snapshot.getValueAtQuantile(QUANTILES[i]) / 1000);
+		map.put("maxMicros", snapshot.getMax() / 1000);
+		return map;
+	}
+}
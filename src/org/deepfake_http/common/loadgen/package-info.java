@@ -0,0 +1 @@
+package org.deepfake_http.common.loadgen;
\ No newline at end of file
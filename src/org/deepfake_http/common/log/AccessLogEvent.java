@@ -0,0 +1,103 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.log;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact snapshot of a served request/response.
+ * Captured on the request thread, formatted by appenders on their own threads.
+ * Console log uses request/response fields, access log uses method, path, match and timing fields.
+ */
+public class AccessLogEvent {
+	public long                timestamp;       // ms since epoch
+	public String              remoteAddr;
+	public String              remoteHost;
+	public int                 remotePort;
+	public String              remoteUser;
+	public String              firstLine;
+	public List<String>        requestHeaders;  // name, value, name, value...
+	public byte[]              requestBody;     // truncated to max log body
+	public int                 status;
+	public String              message;
+	public Map<String, String> responseHeaders;
+	public byte[]              responseBody;    // truncated to max log body
+
+	/* access log */
+	public String  method;
+	public String  path;
+	public String  dumpFile;      // matched dump file or null
+	public int     lineNumber;    // matched request line number in dump file
+	public long    bytes;         // response body bytes
+	public long    startNanos;    // processing start (body read), 0 - processing not started
+	public long    matchNanos;    // dump matching
+	public long    templateNanos; // templates
+	public long    handlerNanos;  // JavaScript, CGI and forward handlers
+	public long    writeNanos;    // response body writing
+	public boolean handled;       // response body writing started
+
+	/**
+	 * Processing started
+	 */
+	public void markStarted() {
+		startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Dump matching finished
+	 */
+	public void markMatched() {
+		if (startNanos != 0)
+			matchNanos = System.nanoTime() - startNanos;
+	}
+
+	/**
+	 * Response is ready for writing
+	 *
+	 * @param bytes - response body bytes
+	 */
+	public void markHandled(long bytes) {
+		this.bytes = bytes;
+		handled    = true;
+		if (startNanos != 0)
+			templateNanos = System.nanoTime() - startNanos - matchNanos - handlerNanos;
+	}
+
+	/**
+	 * Response is written
+	 *
+	 * @param status
+	 */
+	public void markCompleted(int status) {
+		this.status = status;
+		if (startNanos != 0 && handled)
+			writeNanos = System.nanoTime() - startNanos - matchNanos - templateNanos - handlerNanos;
+	}
+}
@@ -0,0 +1,232 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Base class for appenders writing records on a single background thread.
+ * Request threads only put records into a bounded lock-free queue,
+ * the writer thread drains the queue in batches.
+ *
+ * @param <T> - record type
+ */
+public abstract class AsyncAppender<T> implements Runnable, Closeable {
+	public static final int SAMPLE_RATE = 10;
+
+	private static final int  MAX_BATCH          = 256;
+	private static final long IDLE_PARK_NANOS    = TimeUnit.MILLISECONDS.toNanos(100);
+	private static final long BLOCK_PARK_NANOS   = TimeUnit.MICROSECONDS.toNanos(100);
+	private static final long DROP_REPORT_MILLIS = 10_000;
+	private static final long CLOSE_WAIT_MILLIS  = 5_000;
+
+	protected final Logger logger;
+
+	private final String         name;
+	private final RingBuffer<T>  queue;
+	private final OverflowPolicy overflowPolicy;
+	private final LongAdder      dropped       = new LongAdder();
+	private final AtomicLong     sampleCounter = new AtomicLong();
+	private final Thread         thread;
+
+	private volatile boolean closed;
+	private volatile boolean idle;
+
+	private long    droppedReported;
+	private long    droppedReportedAt;
+	private boolean failing; // last write failed, error already logged
+
+	/**
+	 * @param logger
+	 * @param name           - writer thread name
+	 * @param queueCapacity
+	 * @param overflowPolicy
+	 */
+	protected AsyncAppender(Logger logger, String name, int queueCapacity, OverflowPolicy overflowPolicy) {
+		this.logger         = logger;
+		this.name           = name;
+		this.queue          = new RingBuffer<>(queueCapacity);
+		this.overflowPolicy = overflowPolicy;
+		this.thread         = new Thread(this, name);
+		this.thread.setDaemon(true);
+	}
+
+	/**
+	 * Start writer thread
+	 */
+	public void start() {
+		thread.start();
+	}
+
+	/**
+	 * Enqueue record. Never blocks unless the policy is {@link OverflowPolicy#BLOCK}.
+	 *
+	 * @param record
+	 * @return false if the record was dropped
+	 */
+	public boolean append(T record) {
+		if (closed)
+			return false;
+		if (overflowPolicy == OverflowPolicy.SAMPLE && queue.size() > queue.capacity() / 2 && sampleCounter.incrementAndGet() % SAMPLE_RATE != 0) {
+			dropped.increment();
+			return false;
+		}
+		while (!queue.offer(record)) {
+			if (overflowPolicy != OverflowPolicy.BLOCK || closed) {
+				dropped.increment();
+				return false;
+			}
+			LockSupport.unpark(thread);
+			LockSupport.parkNanos(BLOCK_PARK_NANOS);
+		}
+		if (idle)
+			LockSupport.unpark(thread);
+		return true;
+	}
+
+	/**
+	 * @return number of dropped records
+	 */
+	public long getDropped() {
+		return dropped.sum();
+	}
+
+	@Override
+	public void run() {
+		List<T> batch = new ArrayList<>(MAX_BATCH);
+		try {
+			while (true) {
+				T record;
+				while (batch.size() < MAX_BATCH && (record = queue.poll()) != null)
+					batch.add(record);
+				if (!batch.isEmpty()) {
+					try {
+						write(batch);
+						failing = false;
+					} catch (IOException e) { // e.g. disk full, keep draining so request threads never block
+						dropped.add(batch.size());
+						writeFailed(e);
+					}
+					batch.clear();
+					continue;
+				}
+				if (closed)
+					break;
+				try {
+					flush();
+				} catch (IOException e) {
+					writeFailed(e);
+				}
+				reportDropped();
+				idle = true;
+				if (queue.size() == 0)
+					LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+				idle = false;
+			}
+			flush();
+		} catch (Throwable e) {
+			closed = true; // records are dropped from now on instead of filling the queue
+			logger.log(Level.SEVERE, name + " failed", e);
+		} finally {
+			try {
+				closeSink();
+			} catch (IOException e) {
+				logger.log(Level.WARNING, name + " close failed", e);
+			}
+			reportDropped();
+		}
+	}
+
+	/**
+	 * Write all queued records and stop writer thread
+	 */
+	@Override
+	public void close() {
+		if (closed)
+			return;
+		closed = true;
+		LockSupport.unpark(thread);
+		if (thread.isAlive() && thread != Thread.currentThread())
+			try {
+				thread.join(CLOSE_WAIT_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+	}
+
+	/**
+	 * Write batch of records. Called on writer thread only.
+	 *
+	 * @param batch
+	 * @throws IOException
+	 */
+	protected abstract void write(List<T> batch) throws IOException;
+
+	/**
+	 * Called on writer thread when the queue is drained
+	 *
+	 * @throws IOException
+	 */
+	protected void flush() throws IOException {
+	}
+
+	/**
+	 * Called on writer thread on exit
+	 *
+	 * @throws IOException
+	 */
+	protected void closeSink() throws IOException {
+	}
+
+	private void writeFailed(IOException e) {
+		if (!failing)
+			logger.log(Level.SEVERE, name + " write failed, records are dropped until a write succeeds", e);
+		failing = true;
+	}
+
+	private void reportDropped() {
+		long now = System.currentTimeMillis();
+		if (now - droppedReportedAt < DROP_REPORT_MILLIS && !closed)
+			return;
+		long total = dropped.sum();
+		if (total != droppedReported)
+			logger.log(Level.WARNING, "{0}: {1} record(s) dropped", new Object[] { name, Long.toString(total - droppedReported) });
+		droppedReported   = total;
+		droppedReportedAt = now;
+	}
+}
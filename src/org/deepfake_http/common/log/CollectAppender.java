@@ -0,0 +1,179 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Appender for --collect recordings.
+ * Records are complete request/response dumps, written by a single thread over one
+ * long-lived file channel, so concurrent requests never interleave.
+ * The file can be rotated by size and/or age, rotated segments can be gzipped.
+ */
+public class CollectAppender extends AsyncAppender<byte[]> {
+	private static final DateTimeFormatter SEGMENT_SUFFIX_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+	private static final long              ROTATE_RETRY_MILLIS      = 10_000;
+
+	private final Path    file;
+	private final long    rotateSize;
+	private final long    rotateTime;
+	private final boolean gzip;
+
+	private FileChannel     channel;
+	private long            size;
+	private long            openedAt;
+	private long            rotateRetryAt;
+	private ExecutorService gzipExecutor;
+
+	/**
+	 * @param logger
+	 * @param file
+	 * @param rotateSize     - rotate when file size in bytes reaches the value, 0 - no size rotation
+	 * @param rotateTime     - rotate when file age in ms reaches the value, 0 - no time rotation
+	 * @param gzip           - gzip rotated segments
+	 * @param queueCapacity
+	 * @param overflowPolicy
+	 * @throws IOException
+	 */
+	public CollectAppender(Logger logger, Path file, long rotateSize, long rotateTime, boolean gzip, int queueCapacity, OverflowPolicy overflowPolicy) throws IOException {
+		super(logger, "collect-writer", queueCapacity, overflowPolicy);
+		this.file       = file;
+		this.rotateSize = rotateSize;
+		this.rotateTime = rotateTime;
+		this.gzip       = gzip;
+		if (gzip)
+			gzipExecutor = Executors.newSingleThreadExecutor(r -> {
+				Thread thread = new Thread(r, "collect-gzip");
+				thread.setDaemon(true);
+				return thread;
+			});
+		open();
+	}
+
+	@Override
+	protected void write(List<byte[]> batch) throws IOException {
+		if (!channel.isOpen()) // reopen failed after an earlier error
+			open();
+		ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+		long         length  = 0;
+		for (int i = 0; i < buffers.length; i++) {
+			buffers[i] = ByteBuffer.wrap(batch.get(i));
+			length += buffers[i].remaining();
+		}
+		for (long written = 0; written < length;)
+			written += channel.write(buffers);
+		size += length;
+		rotateIfDue(); // also checks age, the queue may never drain under sustained load
+	}
+
+	@Override
+	protected void flush() throws IOException {
+		rotateIfDue();
+	}
+
+	@Override
+	protected void closeSink() throws IOException {
+		channel.close();
+		if (gzipExecutor != null) {
+			gzipExecutor.shutdown();
+			try {
+				gzipExecutor.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void open() throws IOException {
+		channel  = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		size     = channel.size();
+		openedAt = System.currentTimeMillis();
+	}
+
+	/**
+	 * Rotate by size or age. A failed rotation is logged and retried later,
+	 * records keep going to the current file.
+	 */
+	private void rotateIfDue() {
+		long now = System.currentTimeMillis();
+		if (now < rotateRetryAt)
+			return;
+		if ((rotateSize > 0 && size >= rotateSize) || (rotateTime > 0 && size > 0 && now - openedAt >= rotateTime))
+			try {
+				rotate();
+			} catch (IOException e) {
+				logger.log(Level.WARNING, "Cannot rotate " + file, e);
+				rotateRetryAt = now + ROTATE_RETRY_MILLIS;
+			}
+	}
+
+	private void rotate() throws IOException {
+		channel.close();
+		Path segment = file.resolveSibling(file.getFileName() + "." + LocalDateTime.now().format(SEGMENT_SUFFIX_FORMATTER));
+		try {
+			Files.move(file, segment, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			open(); // if the move failed, keep appending to the current file
+		}
+		if (gzip)
+			gzipExecutor.execute(() -> gzip(segment));
+	}
+
+	private void gzip(Path segment) {
+		Path gz = segment.resolveSibling(segment.getFileName() + ".gz");
+		try (InputStream is = Files.newInputStream(segment); OutputStream os = new GZIPOutputStream(Files.newOutputStream(gz))) {
+			is.transferTo(os);
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Cannot gzip " + segment, e);
+			return;
+		}
+		try {
+			Files.delete(segment);
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Cannot delete " + segment, e);
+		}
+	}
+}
@@ -0,0 +1,209 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.log;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.deepfake_http.common.utils.HeaderUtils;
+import org.deepfake_http.common.utils.IAnsi;
+import org.deepfake_http.common.utils.ParseDumpUtils;
+
+/**
+ * Console request/response log.
+ * Events are formatted and colorized on the writer thread, a whole batch goes to the logger in one call.
+ * Supports 1-in-N sampling and a per-second cap, both applied before the event is captured.
+ */
+public class ConsoleAppender extends AsyncAppender<AccessLogEvent> {
+	private static final int    RATE_COUNT_BITS = 20;
+	private static final long   RATE_COUNT_MASK = (1L << RATE_COUNT_BITS) - 1;
+	private static final String LINE_DOUBLE     = "================================================================================";
+	private static final String LINE_SINGLE     = "--------------------------------------------------------------------------------";
+
+	private final boolean color;
+	private final boolean logRequestInfo;
+	private final boolean logHeaders;
+	private final boolean logBody;
+	private final int     badRequestStatus;
+	private final int     sampleRate;
+	private final int     rateLimit;
+
+	private final AtomicLong sampleCounter = new AtomicLong();
+	private final AtomicLong rateWindow    = new AtomicLong(); // second << RATE_COUNT_BITS | count
+
+	private final StringBuilder sb = new StringBuilder();
+
+	/**
+	 * @param logger
+	 * @param color
+	 * @param logRequestInfo
+	 * @param logHeaders
+	 * @param logBody
+	 * @param badRequestStatus - status of non-matching requests, logged in red
+	 * @param sampleRate       - log 1 of N requests, 1 - log all
+	 * @param rateLimit        - max logged requests per second, 0 - unlimited
+	 * @param queueCapacity
+	 * @param overflowPolicy
+	 */
+	public ConsoleAppender(Logger logger, boolean color, boolean logRequestInfo, boolean logHeaders, boolean logBody, int badRequestStatus, int sampleRate, int rateLimit, int queueCapacity, OverflowPolicy overflowPolicy) {
+		super(logger, "console-log-writer", queueCapacity, overflowPolicy);
+		this.color            = color;
+		this.logRequestInfo   = logRequestInfo;
+		this.logHeaders       = logHeaders;
+		this.logBody          = logBody;
+		this.badRequestStatus = badRequestStatus;
+		this.sampleRate       = Math.max(1, sampleRate);
+		this.rateLimit        = (int) Math.min(rateLimit, RATE_COUNT_MASK);
+	}
+
+	/**
+	 * Sampling and rate limit check. Call before capturing the event.
+	 *
+	 * @return true if the request should be logged
+	 */
+	public boolean accept() {
+		if (sampleRate > 1 && sampleCounter.getAndIncrement() % sampleRate != 0)
+			return false;
+		if (rateLimit <= 0)
+			return true;
+		long second = System.currentTimeMillis() / 1000;
+		while (true) {
+			long window = rateWindow.get();
+			long next;
+			if (window >>> RATE_COUNT_BITS == second) {
+				if ((window & RATE_COUNT_MASK) >= rateLimit)
+					return false;
+				next = window + 1;
+			} else
+				next = second << RATE_COUNT_BITS | 1;
+			if (rateWindow.compareAndSet(window, next))
+				return true;
+		}
+	}
+
+	@Override
+	protected void write(List<AccessLogEvent> batch) {
+		sb.setLength(0);
+		for (AccessLogEvent event : batch) {
+			if (sb.length() != 0)
+				sb.append('\n');
+			format(event);
+		}
+		logger.log(Level.INFO, sb.toString());
+	}
+
+	private void format(AccessLogEvent event) {
+		String firstLineColor = IAnsi.CYAN_BOLD_BRIGHT;
+		String headersColor   = IAnsi.CYAN;
+		String contentColor   = IAnsi.CYAN_BRIGHT;
+
+		if (color)
+			sb.append(IAnsi.RESET + IAnsi.BLACK_BRIGHT);
+		sb.append(LINE_DOUBLE);
+		if (logRequestInfo) {
+			if (color)
+				sb.append(IAnsi.RESET + IAnsi.BLACK_BOLD_BRIGHT);
+			sb.append("\n[").append(DateTimeFormatter.ISO_INSTANT.format(Instant.ofEpochMilli(event.timestamp))).append("]\n\n");
+			if (color)
+				sb.append(IAnsi.RESET + IAnsi.BLACK_BRIGHT);
+			sb.append("REMOTE_ADDR: ").append(event.remoteAddr).append('\n');
+			sb.append("REMOTE_HOST: ").append(event.remoteHost).append('\n');
+			sb.append("REMOTE_PORT: ").append(event.remotePort).append('\n');
+			sb.append("REMOTE_USER: ").append(event.remoteUser == null ? "" : event.remoteUser).append('\n');
+			sb.append(LINE_SINGLE);
+		}
+		if (color)
+			sb.append(IAnsi.RESET + firstLineColor);
+		sb.append('\n');
+		sb.append(event.firstLine);
+		sb.append('\n');
+		if (logHeaders && event.requestHeaders != null) {
+			if (color)
+				sb.append(IAnsi.RESET + headersColor);
+			/* provided headers */
+			for (int i = 0; i < event.requestHeaders.size(); i += 2)
+				sb.append(HeaderUtils.processHeaderName(event.requestHeaders.get(i))).append(": ").append(event.requestHeaders.get(i + 1)).append('\n');
+		}
+		if (logBody) {
+			if (color)
+				sb.append(IAnsi.RESET + contentColor);
+			appendBody(event.requestBody);
+		}
+
+		if (event.status == badRequestStatus) {
+			firstLineColor = IAnsi.RED_BOLD_BRIGHT;
+			headersColor   = IAnsi.RED;
+			contentColor   = IAnsi.RED_BRIGHT;
+		} else {
+			firstLineColor = IAnsi.PURPLE_BOLD_BRIGHT;
+			headersColor   = IAnsi.PURPLE;
+			contentColor   = IAnsi.PURPLE_BRIGHT;
+		}
+
+		if (color)
+			sb.append(IAnsi.RESET + IAnsi.BLACK_BRIGHT);
+		sb.append('\n');
+		sb.append(LINE_SINGLE);
+		sb.append('\n');
+
+		if (color)
+			sb.append(IAnsi.RESET + firstLineColor);
+		sb.append(ParseDumpUtils.HTTP_1_1).append(' ').append(event.status);
+		if (event.message != null)
+			sb.append(' ').append(event.message);
+		sb.append('\n');
+		if (logHeaders && event.responseHeaders != null) {
+			if (color)
+				sb.append(IAnsi.RESET + headersColor);
+			/* provided headers */
+			for (Map.Entry<String, String> entry : event.responseHeaders.entrySet())
+				sb.append(HeaderUtils.processHeaderName(entry.getKey())).append(": ").append(entry.getValue()).append('\n');
+		}
+		if (logBody) {
+			if (color)
+				sb.append(IAnsi.RESET + contentColor);
+			appendBody(event.responseBody);
+		}
+		if (color)
+			sb.append(IAnsi.RESET);
+	}
+
+	private void appendBody(byte[] bs) {
+		if (bs != null && bs.length != 0) {
+			sb.append('\n');
+			sb.append(new String(bs, StandardCharsets.UTF_8));
+		}
+	}
+}
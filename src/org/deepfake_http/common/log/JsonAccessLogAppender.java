@@ -0,0 +1,97 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.log;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Structured access log: one JSON object per line.
+ * A single reusable generator streams fields straight into the file buffer.
+ */
+public class JsonAccessLogAppender extends AsyncAppender<AccessLogEvent> {
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final JsonGenerator generator;
+
+	/**
+	 * @param logger
+	 * @param file
+	 * @param queueCapacity
+	 * @param overflowPolicy
+	 * @throws IOException
+	 */
+	public JsonAccessLogAppender(Logger logger, Path file, int queueCapacity, OverflowPolicy overflowPolicy) throws IOException {
+		super(logger, "access-log-writer", queueCapacity, overflowPolicy);
+		BufferedOutputStream os = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND), BUFFER_SIZE);
+		generator = new JsonFactory().createGenerator(os, JsonEncoding.UTF8);
+		generator.setRootValueSeparator(null);
+	}
+
+	@Override
+	protected void write(List<AccessLogEvent> batch) throws IOException {
+		for (AccessLogEvent event : batch) {
+			generator.writeStartObject();
+			generator.writeNumberField("timestamp", event.timestamp);
+			generator.writeStringField("method", event.method);
+			generator.writeStringField("path", event.path);
+			if (event.dumpFile != null) {
+				generator.writeStringField("dumpFile", event.dumpFile);
+				generator.writeNumberField("lineNumber", event.lineNumber);
+			}
+			generator.writeNumberField("status", event.status);
+			generator.writeNumberField("bytes", event.bytes);
+			generator.writeNumberField("matchMicros", event.matchNanos / 1000);
+			generator.writeNumberField("templateMicros", event.templateNanos / 1000);
+			generator.writeNumberField("handlerMicros", event.handlerNanos / 1000);
+			generator.writeNumberField("writeMicros", event.writeNanos / 1000);
+			generator.writeEndObject();
+			generator.writeRaw('\n');
+		}
+	}
+
+	@Override
+	protected void flush() throws IOException {
+		generator.flush();
+	}
+
+	@Override
+	protected void closeSink() throws IOException {
+		generator.close();
+	}
+}
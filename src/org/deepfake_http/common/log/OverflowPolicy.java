@@ -0,0 +1,51 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.log;
+
+import java.util.Locale;
+
+/**
+ * What to do with a log record when the appender queue is full
+ */
+public enum OverflowPolicy {
+	/** wait for free space, no records lost */
+	BLOCK,
+	/** drop the record */
+	DROP,
+	/** keep 1 of {@link AsyncAppender#SAMPLE_RATE} records while the queue is more than half full, drop when full */
+	SAMPLE;
+
+	/**
+	 * @param s - "block", "drop" or "sample"
+	 * @return
+	 */
+	public static OverflowPolicy parse(String s) {
+		return valueOf(s.trim().toUpperCase(Locale.ENGLISH));
+	}
+}
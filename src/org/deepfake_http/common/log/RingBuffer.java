@@ -0,0 +1,118 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free multi-producer multi-consumer ring buffer.
+ * Every slot carries a sequence number telling producers and consumers whose turn it is,
+ * so neither side ever takes a lock.
+ *
+ * @param <T>
+ */
+public class RingBuffer<T> {
+	private final int                     mask;
+	private final AtomicReferenceArray<T> items;
+	private final AtomicLongArray         sequences;
+	private final AtomicLong              head = new AtomicLong(); // next position to poll
+	private final AtomicLong              tail = new AtomicLong(); // next position to offer
+
+	/**
+	 * @param capacity - rounded up to power of two
+	 */
+	public RingBuffer(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		mask      = size - 1;
+		items     = new AtomicReferenceArray<>(size);
+		sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++)
+			sequences.set(i, i);
+	}
+
+	public int capacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * @return approximate number of items
+	 */
+	public int size() {
+		long size = tail.get() - head.get();
+		return size < 0 ? 0 : (int) Math.min(size, capacity());
+	}
+
+	/**
+	 * @param item
+	 * @return false if the buffer is full
+	 */
+	public boolean offer(T item) {
+		long pos = tail.get();
+		while (true) {
+			int  index = (int) (pos & mask);
+			long diff  = sequences.get(index) - pos;
+			if (diff == 0) {
+				if (tail.compareAndSet(pos, pos + 1)) {
+					items.lazySet(index, item);
+					sequences.set(index, pos + 1);
+					return true;
+				}
+				pos = tail.get();
+			} else if (diff < 0)
+				return false; // full
+			else
+				pos = tail.get();
+		}
+	}
+
+	/**
+	 * @return item or null if the buffer is empty
+	 */
+	public T poll() {
+		long pos = head.get();
+		while (true) {
+			int  index = (int) (pos & mask);
+			long diff  = sequences.get(index) - (pos + 1);
+			if (diff == 0) {
+				if (head.compareAndSet(pos, pos + 1)) {
+					T item = items.get(index);
+					items.lazySet(index, null);
+					sequences.set(index, pos + mask + 1);
+					return item;
+				}
+				pos = head.get();
+			} else if (diff < 0)
+				return null; // empty
+			else
+				pos = head.get();
+		}
+	}
+}
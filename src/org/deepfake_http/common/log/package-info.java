@@ -0,0 +1 @@
+package org.deepfake_http.common.log;
\ No newline at end of file
@@ -0,0 +1,148 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.match;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.deepfake_http.common.FirstLineReq;
+import org.deepfake_http.common.Header;
+import org.deepfake_http.common.ReqResp;
+import org.deepfake_http.common.utils.HttpPathUtils;
+import org.deepfake_http.common.utils.ParseDumpUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Request side of dump entry parsed and compiled at load time
+ */
+public class CompiledRoute {
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	public String          method;
+	public boolean         protocolOk;
+	public String          path;
+	public QueryMatcher    query;
+	public HeaderMatcher[] headers;
+	public String          body;      // stripped
+	public QueryMatcher    bodyQuery; // form body template, null if body is empty
+	public JsonNode        bodyJson;  // null if body is not JSON
+	public long            bodyJsonHash;
+	public boolean         bodyFromSource; // body template is loaded at match time
+
+	/**
+	 * @param reqResp
+	 * @param processWildcards
+	 * @param ignoredHeaders      - lower case names of request headers not used for matching
+	 * @param contentSourceHeader - lower case name of request header with body template source
+	 * @throws Exception
+	 */
+	public CompiledRoute(ReqResp reqResp, boolean processWildcards, Set<String> ignoredHeaders, String contentSourceHeader) throws Exception {
+		FirstLineReq firstLineReq = new FirstLineReq(reqResp.request.firstLine);
+		method     = firstLineReq.getMethod();
+		protocolOk = firstLineReq.getProtocol().equals(ParseDumpUtils.HTTP_1_1);
+		path       = HttpPathUtils.extractPathFromUri(firstLineReq.getUri());
+		query      = new QueryMatcher(processWildcards, HttpPathUtils.extractQueryStringFromUri(firstLineReq.getUri()));
+
+		Map<String, List<String>> headerValuesMap = new LinkedHashMap<>();
+		for (String headerStr : reqResp.request.headers) {
+			Header header              = new Header(headerStr);
+			String lowerCaseHeaderName = header.name.toLowerCase(Locale.ENGLISH);
+			if (lowerCaseHeaderName.equals(contentSourceHeader))
+				bodyFromSource = true;
+			if (ignoredHeaders.contains(lowerCaseHeaderName))
+				continue;
+
+			List<String> headerValuesList = headerValuesMap.get(lowerCaseHeaderName);
+			if (headerValuesList == null) {
+				headerValuesList = new ArrayList<>();
+				headerValuesMap.put(lowerCaseHeaderName, headerValuesList);
+			}
+
+			String[] headerValues = header.value.split(",");
+			for (String headerValue : headerValues) {
+				headerValue = headerValue.trim();
+				if (!headerValue.isEmpty())
+					headerValuesList.add(headerValue);
+			}
+		}
+		headers = new HeaderMatcher[headerValuesMap.size()];
+		int i = 0;
+		for (Map.Entry<String, List<String>> entry : headerValuesMap.entrySet())
+			headers[i++] = new HeaderMatcher(processWildcards, entry.getKey(), entry.getValue());
+
+		body = reqResp.request.body.toString().strip();
+		if (!body.isEmpty()) {
+			bodyQuery = new QueryMatcher(processWildcards, body);
+			bodyJson  = parseJson(body);
+			if (bodyJson != null)
+				bodyJsonHash = JsonHash.hash(bodyJson);
+		}
+	}
+
+	/**
+	 * @param json
+	 * @return parsed tree or null if text is not JSON
+	 */
+	public static JsonNode parseJson(String json) {
+		try {
+			return OBJECT_MAPPER.readTree(json);
+		} catch (JsonProcessingException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @param name - lower case header name
+	 * @return header constraint or null
+	 */
+	public HeaderMatcher getHeader(String name) {
+		for (HeaderMatcher header : headers)
+			if (header.name.equals(name))
+				return header;
+		return null;
+	}
+
+	/**
+	 * @param headerValuesMap - provided header values by lower case name
+	 * @return true if all header constraints match
+	 */
+	public boolean matchHeaders(Map<String, List<String>> headerValuesMap) {
+		for (HeaderMatcher header : headers)
+			if (!header.match(headerValuesMap))
+				return false;
+		return true;
+	}
+}
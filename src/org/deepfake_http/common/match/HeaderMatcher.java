@@ -0,0 +1,81 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.match;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Request header constraint compiled once: every template value must match one of the provided values
+ */
+public class HeaderMatcher {
+	public final String name; // lower case
+
+	private final WildcardMatcher[] values;
+
+	/**
+	 * @param processWildcards
+	 * @param name             - lower case header name
+	 * @param templateValues   - comma separated values of all header lines with this name
+	 */
+	public HeaderMatcher(boolean processWildcards, String name, List<String> templateValues) {
+		this.name   = name;
+		this.values = new WildcardMatcher[templateValues.size()];
+		for (int i = 0; i < values.length; i++)
+			values[i] = WildcardMatcher.compile(processWildcards, templateValues.get(i));
+	}
+
+	/**
+	 * @param headerValuesMap - provided header values by lower case name
+	 * @return
+	 */
+	public boolean match(Map<String, List<String>> headerValuesMap) {
+		List<String> providedValues = headerValuesMap.get(name);
+		if (providedValues == null)
+			return values.length == 0;
+		for (WildcardMatcher matcher : values)
+			if (!matchAny(matcher, providedValues))
+				return false;
+		return true;
+	}
+
+	/**
+	 * @return literal value if constraint is exactly one literal value, otherwise null
+	 */
+	public String literal() {
+		return values.length == 1 ? values[0].literal() : null;
+	}
+
+	private static boolean matchAny(WildcardMatcher matcher, List<String> providedValues) {
+		for (int i = 0; i < providedValues.size(); i++)
+			if (matcher.match(providedValues.get(i)))
+				return true;
+		return false;
+	}
+}
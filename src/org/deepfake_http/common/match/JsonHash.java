@@ -0,0 +1,176 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.match;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Canonical structural hash of JSON values.
+ *
+ * Object fields are combined regardless of order, arrays in order, so trees that are equal
+ * by {@link JsonNode#equals(Object)} always have the same hash. Different hashes prove inequality,
+ * equal hashes still need full tree comparison.
+ */
+public class JsonHash {
+	private static final JsonFactory JSON_FACTORY = new JsonFactory().enable(JsonParser.Feature.STRICT_DUPLICATE_DETECTION);
+
+	private static final long NULL   = 0x6E756C6CL;
+	private static final long TRUE   = 0x74727565L;
+	private static final long FALSE  = 0x66616C73L;
+	private static final long OBJECT = 0x4F424A45L;
+	private static final long ARRAY  = 0x41525241L;
+
+	/**
+	 * Hash parsed tree
+	 *
+	 * @param node
+	 * @return
+	 */
+	public static long hash(JsonNode node) {
+		switch (node.getNodeType()) {
+		case OBJECT:
+			long sum = 0;
+			for (Iterator<Map.Entry<String, JsonNode>> it = node.fields(); it.hasNext();) {
+				Map.Entry<String, JsonNode> entry = it.next();
+				sum += field(entry.getKey().hashCode(), hash(entry.getValue()));
+			}
+			return mix(OBJECT + sum);
+		case ARRAY:
+			long h = ARRAY;
+			for (JsonNode element : node)
+				h = h * 31 + hash(element);
+			return mix(h);
+		case STRING:
+			return mix(node.textValue().hashCode());
+		case NUMBER:
+			switch (node.numberType()) {
+			case INT:
+			case LONG:
+				return mix(node.longValue());
+			case BIG_INTEGER:
+				return mix(node.bigIntegerValue().hashCode());
+			default:
+				return mix(Double.hashCode(node.doubleValue()));
+			}
+		case BOOLEAN:
+			return node.booleanValue() ? TRUE : FALSE;
+		case NULL:
+			return NULL;
+		default:
+			return mix(node.hashCode());
+		}
+	}
+
+	/**
+	 * Hash JSON text in one streaming pass without building a tree
+	 *
+	 * @param json
+	 * @return hash or null if text is not valid JSON or has duplicate object keys
+	 */
+	public static Long hash(String json) {
+		try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+			if (parser.nextToken() == null)
+				return null;
+			return hash(parser);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private static long hash(JsonParser parser) throws IOException {
+		switch (parser.currentToken()) {
+		case START_OBJECT:
+			long sum = 0;
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				int nameHash = parser.getCurrentName().hashCode();
+				parser.nextToken();
+				sum += field(nameHash, hash(parser));
+			}
+			return mix(OBJECT + sum);
+		case START_ARRAY:
+			long h = ARRAY;
+			while (parser.nextToken() != JsonToken.END_ARRAY)
+				h = h * 31 + hash(parser);
+			return mix(h);
+		case VALUE_STRING:
+			return mix(textHash(parser));
+		case VALUE_NUMBER_INT:
+			switch (parser.getNumberType()) {
+			case INT:
+			case LONG:
+				return mix(parser.getLongValue());
+			default:
+				return mix(parser.getBigIntegerValue().hashCode());
+			}
+		case VALUE_NUMBER_FLOAT:
+			return mix(Double.hashCode(parser.getDoubleValue()));
+		case VALUE_TRUE:
+			return TRUE;
+		case VALUE_FALSE:
+			return FALSE;
+		case VALUE_NULL:
+			return NULL;
+		default:
+			throw new IOException("Unexpected token: " + parser.currentToken());
+		}
+	}
+
+	/**
+	 * Same value as String.hashCode() without creating the string
+	 */
+	private static int textHash(JsonParser parser) throws IOException {
+		char[] chars  = parser.getTextCharacters();
+		int    offset = parser.getTextOffset();
+		int    length = parser.getTextLength();
+		int    h      = 0;
+		for (int i = offset; i < offset + length; i++)
+			h = 31 * h + chars[i];
+		return h;
+	}
+
+	private static long field(int nameHash, long valueHash) {
+		return mix(nameHash * 0x9E3779B97F4A7C15L + valueHash);
+	}
+
+	/**
+	 * SplitMix64 finalizer
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
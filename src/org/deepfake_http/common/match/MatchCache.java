@@ -0,0 +1,166 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.match;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.hive.common.util.Murmur3;
+import org.deepfake_http.common.servlet.RequestContext;
+
+/**
+ * Bounded cache of matching results: request fingerprint to index of the matched dump entry.
+ *
+ * The fingerprint covers method, path, query string, Content-Type, the headers used by any route
+ * and Murmur3 128-bit hash of the body, so it determines the result for routes matched without
+ * runtime body source. Requests with a body spilled to disk are not cached, hashing would read the file.
+ * The cache belongs to a route table and is dropped with it on reload.
+ */
+public class MatchCache {
+	private static final String HEADER_CONTENT_TYPE = "content-type";
+
+	private final int                             maxSize;
+	private final String[]                        headerNames; // lower case, sorted
+	private final ConcurrentHashMap<Key, Integer> map;
+
+	/**
+	 * 128-bit request fingerprint
+	 */
+	public static final class Key {
+		private final long h1;
+		private final long h2;
+
+		Key(long h1, long h2) {
+			this.h1 = h1;
+			this.h2 = h2;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key key = (Key) obj;
+			return h1 == key.h1 && h2 == key.h2;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (h1 ^ h1 >>> 32);
+		}
+	}
+
+	/**
+	 * @param routes
+	 * @param maxSize - max number of cached results
+	 */
+	public MatchCache(CompiledRoute[] routes, int maxSize) {
+		Set<String> names = new TreeSet<>();
+		names.add(HEADER_CONTENT_TYPE);
+		for (CompiledRoute route : routes)
+			for (HeaderMatcher header : route.headers)
+				names.add(header.name);
+		this.maxSize     = maxSize;
+		this.headerNames = names.toArray(new String[0]);
+		this.map         = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * @param ctx
+	 * @param method
+	 * @param path
+	 * @return request fingerprint or null if the request is not cacheable
+	 * @throws IOException
+	 */
+	public Key fingerprint(RequestContext ctx, String method, String path) throws IOException {
+		if (ctx.getRequestBody().isSpilled())
+			return null;
+		StringBuilder sb = new StringBuilder(128);
+		append(sb, method);
+		append(sb, path);
+		append(sb, ctx.getQueryString());
+		for (String name : headerNames) {
+			List<String> values = ctx.getHeaderValuesMap().get(name);
+			if (values == null)
+				sb.append('-');
+			else
+				for (String value : values)
+					append(sb, value);
+			sb.append(';');
+		}
+		byte[] body = ctx.getBodyBytes();
+		if (body.length != 0) {
+			long[] bodyHash = Murmur3.hash128(body);
+			sb.append(bodyHash[0]).append(':').append(bodyHash[1]);
+		}
+		byte[] bs   = sb.toString().getBytes(StandardCharsets.UTF_8);
+		long[] hash = Murmur3.hash128(bs);
+		return new Key(hash[0], hash[1]);
+	}
+
+	/**
+	 * @param key
+	 * @return index of matched dump entry or -1 if not cached
+	 */
+	public int get(Key key) {
+		Integer index = map.get(key);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Cache result. An arbitrary entry is evicted when the cache is full.
+	 *
+	 * @param key
+	 * @param index - index of matched dump entry
+	 */
+	public void put(Key key, int index) {
+		if (map.size() >= maxSize) {
+			Iterator<Key> it = map.keySet().iterator();
+			if (it.hasNext()) {
+				it.next();
+				it.remove();
+			}
+		}
+		map.put(key, index);
+	}
+
+	/**
+	 * Length-prefixed field, null is distinct from empty
+	 */
+	private static void append(StringBuilder sb, String s) {
+		if (s == null)
+			sb.append('-');
+		else
+			sb.append(s.length()).append(':').append(s);
+	}
+}
@@ -0,0 +1,147 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.match;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.deepfake_http.common.servlet.RequestContext;
+import org.deepfake_http.common.utils.MatchUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Evaluates request side of a large candidate set on a ForkJoin pool.
+ *
+ * The result keeps candidates in evaluation order and ends at the first candidate that surely matches,
+ * so the sequential pass over it finds the same entry as a pass over all candidates.
+ * Routes with runtime body source cannot be decided here and are always kept.
+ */
+public class ParallelMatcher {
+	public static final int MIN_CANDIDATES = 32;   // smaller candidate sets are evaluated sequentially
+	public static final int MIN_BODY       = 1024; // bytes, requests with smaller bodies are evaluated sequentially
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * @param parallelism - number of pool threads
+	 */
+	public ParallelMatcher(int parallelism) {
+		this.pool = new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * @param routes
+	 * @param indexes    - candidate indexes in evaluation order
+	 * @param ctx
+	 * @param method
+	 * @param path
+	 * @param strictJson
+	 * @return candidates that may match, in evaluation order
+	 * @throws IOException
+	 */
+	public int[] filter(CompiledRoute[] routes, int[] indexes, RequestContext ctx, String method, String path, boolean strictJson) throws IOException {
+		/* request context parses lazily and is not thread safe, parse everything needed up front */
+		String                    query        = ctx.getQueryString();
+		Map<String, List<String>> queryMap     = ctx.getQueryMap();
+		Map<String, List<String>> headerMap    = ctx.getHeaderValuesMap();
+		String                    body         = ctx.getStrippedBody();
+		Map<String, List<String>> bodyQueryMap = ctx.getBodyQueryMap();
+		boolean                   formRequest  = ctx.isFormRequest();
+		boolean                   compareJson  = ctx.isJsonRequest() && !strictJson;
+		Long                      jsonHash     = compareJson ? ctx.getJsonBodyHash() : null;
+		JsonNode                  json         = null;
+		if (compareJson)
+			for (int i : indexes)
+				if (routes[i].bodyJson != null && (jsonHash == null || jsonHash == routes[i].bodyJsonHash)) {
+					json = ctx.getJsonBody();
+					break;
+				}
+		JsonNode finalJson = json;
+
+		int           n     = indexes.length;
+		boolean[]     keep  = new boolean[n];
+		AtomicInteger first = new AtomicInteger(n); // lowest position of a route that surely matches
+		try {
+			pool.submit(() -> IntStream.range(0, n).parallel().forEach(k -> {
+				if (k > first.get())
+					return; // a lower candidate already matches
+				CompiledRoute route = routes[indexes[k]];
+				if (route.bodyFromSource) {
+					keep[k] = true;
+					return;
+				}
+				Map<String, List<String>> params = new HashMap<>();
+				if (route.protocolOk && route.method.equals(method) && MatchUtils.matchPath(route.path, path, params) && route.query.match(query, queryMap, params) && route.matchHeaders(headerMap) && matchBody(route, body, bodyQueryMap, formRequest, compareJson, jsonHash, finalJson, params)) {
+					keep[k] = true;
+					first.accumulateAndGet(k, Math::min);
+				}
+			})).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return indexes;
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+
+		int   last = Math.min(first.get(), n - 1);
+		int[] arr  = new int[last + 1];
+		int   m    = 0;
+		for (int k = 0; k <= last; k++)
+			if (keep[k])
+				arr[m++] = indexes[k];
+		int[] result = new int[m];
+		System.arraycopy(arr, 0, result, 0, m);
+		return result;
+	}
+
+	public void close() {
+		pool.shutdownNow();
+	}
+
+	/**
+	 * Same checks as the servlet does for a body template loaded at dump load time
+	 */
+	private static boolean matchBody(CompiledRoute route, String body, Map<String, List<String>> bodyQueryMap, boolean formRequest, boolean compareJson, Long jsonHash, JsonNode json, Map<String, List<String>> params) {
+		if (route.body.isEmpty())
+			return true;
+		if (compareJson && route.bodyJson != null && (jsonHash == null || jsonHash == route.bodyJsonHash))
+			if (json != null && json.equals(route.bodyJson))
+				return true;
+		if (!formRequest && route.body.equals(body))
+			return true;
+		return route.bodyQuery.match(body, bodyQueryMap, params);
+	}
+}
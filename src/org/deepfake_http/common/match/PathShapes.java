@@ -0,0 +1,73 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.match;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.deepfake_http.common.utils.MatchUtils;
+
+/**
+ * Hashed set of template path shapes: segment count and first literal segment.
+ * A path whose shape is not in the set cannot match any of the template paths.
+ */
+public class PathShapes {
+	private static final String PARAM = "{}"; // first segment is a parameter or the path is empty
+
+	private final Set<String> shapes = new HashSet<>();
+
+	/**
+	 * @param templatePath - path with optional <code>{param}</code> segments
+	 */
+	public void add(String templatePath) {
+		List<String> segments = MatchUtils.tokenizePath(templatePath);
+		if (segments.isEmpty())
+			shapes.add(key(0, PARAM));
+		else {
+			String first = segments.get(0);
+			shapes.add(key(segments.size(), first.startsWith("{") && first.endsWith("}") ? PARAM : first));
+		}
+	}
+
+	/**
+	 * @param path - provided path
+	 * @return false if the path cannot match any added template path
+	 */
+	public boolean mayMatch(String path) {
+		List<String> segments = MatchUtils.tokenizePath(path);
+		if (segments.isEmpty())
+			return shapes.contains(key(0, PARAM));
+		return shapes.contains(key(segments.size(), PARAM)) || shapes.contains(key(segments.size(), segments.get(0)));
+	}
+
+	private static String key(int size, String first) {
+		return Integer.toString(size) + ' ' + first;
+	}
+}
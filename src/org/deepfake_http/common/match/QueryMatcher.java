@@ -0,0 +1,133 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.match;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.deepfake_http.common.utils.MatchUtils;
+
+/**
+ * Query string (or form body) template parsed and compiled once.
+ * Matching is a lookup plus compare per template parameter.
+ */
+public class QueryMatcher {
+	private final String              template;
+	private final String[]            names;
+	private final WildcardMatcher[][] values;
+
+	/**
+	 * @param processWildcards
+	 * @param template         - e.g. "lastName=*&page=1"
+	 */
+	public QueryMatcher(boolean processWildcards, String template) {
+		this.template = template;
+
+		Map<String, List<String>> templateMap = new LinkedHashMap<>();
+		MatchUtils.parseQuery(template, templateMap);
+		names  = new String[templateMap.size()];
+		values = new WildcardMatcher[templateMap.size()][];
+		int i = 0;
+		for (Map.Entry<String, List<String>> entry : templateMap.entrySet()) {
+			List<String> templateValues = entry.getValue();
+			names[i]  = entry.getKey();
+			values[i] = new WildcardMatcher[templateValues.size()];
+			for (int j = 0; j < templateValues.size(); j++)
+				values[i][j] = WildcardMatcher.compile(processWildcards, templateValues.get(j));
+			i++;
+		}
+	}
+
+	/**
+	 * @param query    - provided query string
+	 * @param paramMap - matched parameters are added
+	 * @return
+	 */
+	public boolean match(String query, Map<String, List<String>> paramMap) {
+		if (template.equals(query))
+			return true;
+		Map<String, List<String>> queryMap = new LinkedHashMap<>();
+		MatchUtils.parseQuery(query, queryMap);
+		return matchParsed(queryMap, paramMap);
+	}
+
+	/**
+	 * @param query    - provided query string
+	 * @param queryMap - provided query string parsed once per request, not modified
+	 * @param paramMap - matched parameters are added
+	 * @return
+	 */
+	public boolean match(String query, Map<String, List<String>> queryMap, Map<String, List<String>> paramMap) {
+		if (template.equals(query))
+			return true;
+		return matchParsed(queryMap, paramMap);
+	}
+
+	/**
+	 * @param name
+	 * @return literal value if template has exactly one literal value for parameter, otherwise null
+	 */
+	public String literal(String name) {
+		for (int i = 0; i < names.length; i++)
+			if (names[i].equals(name))
+				return values[i].length == 1 ? values[i][0].literal() : null;
+		return null;
+	}
+
+	/**
+	 * @return template parameter names
+	 */
+	public String[] getNames() {
+		return names;
+	}
+
+	private boolean matchParsed(Map<String, List<String>> queryMap, Map<String, List<String>> paramMap) {
+		for (int i = 0; i < names.length; i++) {
+			String            name        = names[i];
+			WildcardMatcher[] matchers    = values[i];
+			List<String>      queryValues = queryMap.get(name);
+			if (queryValues == null || queryValues.size() != matchers.length)
+				return false;
+			for (int j = 0; j < matchers.length; j++) {
+				String queryValue = queryValues.get(j);
+				if (!matchers[j].match(queryValue))
+					return false;
+				List<String> paramValues = paramMap.get(name);
+				if (paramValues == null) {
+					paramValues = new ArrayList<>();
+					paramMap.put(name, paramValues);
+				}
+				paramValues.add(queryValue);
+			}
+		}
+		return true;
+	}
+}
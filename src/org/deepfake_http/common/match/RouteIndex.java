@@ -0,0 +1,404 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.match;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.deepfake_http.common.servlet.RequestContext;
+import org.deepfake_http.common.utils.MatchUtils;
+
+/**
+ * Candidate index of compiled routes.
+ *
+ * Routes are grouped by method and literal path, or by method and segment count for paths with <code>{param}</code> segments.
+ * Inside a large group, routes are bucketed by one discriminator: literal value of a query parameter,
+ * literal value of a header, or canonical hash of a JSON body. Routes without a literal value for the discriminator
+ * are candidates for every request. Candidates are always returned in dump order, so the first match wins as before.
+ *
+ * Groups without discriminator are reordered by decayed hit counts. Only routes proven disjoint (different literal
+ * path segments or different literal values of the same query parameter) may pass each other, routes that can
+ * match the same request keep their dump order. So the first match in the new order is the first match in dump order.
+ */
+public class RouteIndex {
+	private static final int MIN_GROUP_SIZE   = 4;    // smaller groups are scanned sequentially
+	private static final int MAX_ORDER_SIZE   = 1024; // larger groups are not reordered, overlap check is quadratic
+	private static final int REORDER_INTERVAL = 1024; // matches in a group between reorders
+
+	private static final int[] EMPTY = new int[0];
+
+	private static final int DISCRIMINATOR_NONE   = 0;
+	private static final int DISCRIMINATOR_QUERY  = 1;
+	private static final int DISCRIMINATOR_HEADER = 2;
+	private static final int DISCRIMINATOR_BODY   = 3;
+
+	private final boolean            processWildcards;
+	private final Map<String, Group> exactGroups = new HashMap<>(); // "GET a/b"
+	private final Map<String, Group> paramGroups = new HashMap<>(); // "GET 2"
+	private final Group[]            groupOf;                       // group of route by index
+	private final int[]              hits;                          // matches by route index since last reorder, approximate
+
+	/**
+	 * Group of routes with the same method and path (or path shape)
+	 */
+	private class Group {
+		int[]              all;
+		int                discriminator = DISCRIMINATOR_NONE;
+		String             name;    // query parameter or lower case header name
+		Map<Object, int[]> buckets; // literal value or body hash to route indexes
+		int[]              unkeyed; // routes without literal value for discriminator
+
+		/* hit ordering, null if the group is not reordered */
+		int[][]        after;   // by position: later positions of routes that can match the same request
+		int[]          before;  // by position: number of earlier routes that can match the same request
+		long[]         scores;  // by position: decayed hits
+		AtomicInteger  matches;
+		volatile int[] order;   // route indexes in evaluation order
+
+		int[] select(RequestContext ctx) throws IOException {
+			switch (discriminator) {
+			case DISCRIMINATOR_QUERY: {
+				List<String> values = ctx.getQueryMap().get(name);
+				if (values == null || values.size() != 1)
+					return unkeyed;
+				return merge(bucket(key(values.get(0))), unkeyed);
+			}
+			case DISCRIMINATOR_HEADER: {
+				List<String> values = ctx.getHeaderValuesMap().get(name);
+				int[]        keyed  = EMPTY;
+				if (values != null)
+					for (String value : values)
+						keyed = merge(keyed, bucket(key(value)));
+				return merge(keyed, unkeyed);
+			}
+			case DISCRIMINATOR_BODY: {
+				Long hash = ctx.getJsonBodyHash();
+				if (hash == null || !isBodyKeyable(ctx.getStrippedBody()))
+					return all;
+				return merge(bucket(hash), unkeyed);
+			}
+			default:
+				return all;
+			}
+		}
+
+		/**
+		 * Decay scores and order routes by score, keeping the dump order of routes that can match the same request
+		 */
+		synchronized void reorder() {
+			int   n       = all.length;
+			int[] pending = before.clone();
+			for (int k = 0; k < n; k++) {
+				scores[k]    = (scores[k] >> 1) + hits[all[k]];
+				hits[all[k]] = 0;
+			}
+			PriorityQueue<Integer> ready = new PriorityQueue<>((a, b) -> scores[a] != scores[b] ? Long.compare(scores[b], scores[a]) : Integer.compare(a, b));
+			for (int k = 0; k < n; k++)
+				if (pending[k] == 0)
+					ready.add(k);
+			int[] newOrder = new int[n];
+			for (int m = 0; m < n; m++) {
+				int k = ready.poll();
+				newOrder[m] = all[k];
+				for (int j : after[k])
+					if (--pending[j] == 0)
+						ready.add(j);
+			}
+			order = newOrder;
+		}
+
+		private int[] bucket(Object key) {
+			int[] arr = buckets.get(key);
+			return arr == null ? EMPTY : arr;
+		}
+	}
+
+	/**
+	 * @param routes
+	 * @param processWildcards
+	 */
+	public RouteIndex(CompiledRoute[] routes, boolean processWildcards) {
+		this.processWildcards = processWildcards;
+		this.groupOf          = new Group[routes.length];
+		this.hits             = new int[routes.length];
+
+		Map<String, List<Integer>> exact = new LinkedHashMap<>();
+		Map<String, List<Integer>> param = new LinkedHashMap<>();
+		for (int i = 0; i < routes.length; i++) {
+			CompiledRoute route = routes[i];
+			if (!route.protocolOk)
+				continue; // never matches
+			List<String> segments  = MatchUtils.tokenizePath(route.path);
+			boolean      hasParams = false;
+			for (String segment : segments)
+				if (isParam(segment))
+					hasParams = true;
+			if (hasParams)
+				param.computeIfAbsent(route.method + ' ' + segments.size(), key -> new ArrayList<>()).add(i);
+			else
+				exact.computeIfAbsent(route.method + ' ' + String.join("/", segments), key -> new ArrayList<>()).add(i);
+		}
+		for (Map.Entry<String, List<Integer>> entry : exact.entrySet())
+			exactGroups.put(entry.getKey(), createGroup(routes, entry.getValue()));
+		for (Map.Entry<String, List<Integer>> entry : param.entrySet())
+			paramGroups.put(entry.getKey(), createGroup(routes, entry.getValue()));
+	}
+
+	/**
+	 * @param ctx
+	 * @param method - upper case method
+	 * @param path   - provided path
+	 * @return indexes of routes that can match, in dump order
+	 * @throws IOException
+	 */
+	public int[] candidates(RequestContext ctx, String method, String path) throws IOException {
+		List<String> segments = MatchUtils.tokenizePath(path);
+		Group        exact    = exactGroups.get(method + ' ' + String.join("/", segments));
+		Group        param    = paramGroups.get(method + ' ' + segments.size());
+		if (exact == null && param != null && param.order != null)
+			return param.order;
+		if (param == null && exact != null && exact.order != null)
+			return exact.order;
+		return merge(exact == null ? EMPTY : exact.select(ctx), param == null ? EMPTY : param.select(ctx));
+	}
+
+	/**
+	 * Count match for hit ordering
+	 *
+	 * @param index - index of matched route
+	 */
+	public void hit(int index) {
+		Group group = groupOf[index];
+		if (group == null || group.order == null)
+			return;
+		hits[index]++; // racy, counts are approximate
+		if (group.matches.incrementAndGet() % REORDER_INTERVAL == 0)
+			group.reorder();
+	}
+
+	private Group createGroup(CompiledRoute[] routes, List<Integer> indexes) {
+		Group group = new Group();
+		group.all = toArray(indexes);
+		for (int i : indexes)
+			groupOf[i] = group;
+		if (indexes.size() < MIN_GROUP_SIZE)
+			return group;
+
+		/* count routes with literal value per discriminator candidate, pick the most selective one */
+		Map<String, Map<Object, Integer>> distinct = new LinkedHashMap<>(); // "q:name", "h:name", "b" -> key -> count
+		for (int i : indexes) {
+			CompiledRoute route = routes[i];
+			for (String name : route.query.getNames()) {
+				String literal = route.query.literal(name);
+				if (literal != null)
+					distinct.computeIfAbsent("q:" + name, key -> new HashMap<>()).merge(literal, 1, Integer::sum);
+			}
+			for (HeaderMatcher header : route.headers) {
+				String literal = header.literal();
+				if (literal != null)
+					distinct.computeIfAbsent("h:" + header.name, key -> new HashMap<>()).merge(literal, 1, Integer::sum);
+			}
+			if (isBodyKeyable(route))
+				distinct.computeIfAbsent("b", key -> new HashMap<>()).merge(route.bodyJsonHash, 1, Integer::sum);
+		}
+		String best      = null;
+		int    bestCount = 0;
+		for (Map.Entry<String, Map<Object, Integer>> entry : distinct.entrySet()) {
+			Map<Object, Integer> counts = entry.getValue();
+			if (counts.size() < 2)
+				continue; // does not split the group
+			int keyed = 0;
+			for (int count : counts.values())
+				keyed += count;
+			if (keyed > bestCount) {
+				best      = entry.getKey();
+				bestCount = keyed;
+			}
+		}
+		if (best == null || bestCount * 2 < indexes.size()) { // most routes unkeyed, hit ordering does better
+			prepareOrder(routes, group);
+			return group;
+		}
+
+		if (best.equals("b"))
+			group.discriminator = DISCRIMINATOR_BODY;
+		else {
+			group.discriminator = best.startsWith("q:") ? DISCRIMINATOR_QUERY : DISCRIMINATOR_HEADER;
+			group.name          = best.substring(2);
+		}
+
+		Map<Object, List<Integer>> buckets = new HashMap<>();
+		List<Integer>              unkeyed = new ArrayList<>();
+		for (int i : indexes) {
+			Object key = routeKey(group, routes[i]);
+			if (key == null)
+				unkeyed.add(i);
+			else
+				buckets.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+		}
+		group.buckets = new HashMap<>();
+		for (Map.Entry<Object, List<Integer>> entry : buckets.entrySet())
+			group.buckets.put(entry.getKey(), toArray(entry.getValue()));
+		group.unkeyed = toArray(unkeyed);
+		return group;
+	}
+
+	/**
+	 * Find routes that can match the same request, enable hit ordering if some routes are disjoint
+	 */
+	private void prepareOrder(CompiledRoute[] routes, Group group) {
+		int n = group.all.length;
+		if (n > MAX_ORDER_SIZE)
+			return;
+		List<List<String>> segments = new ArrayList<>(n);
+		for (int i : group.all)
+			segments.add(MatchUtils.tokenizePath(routes[i].path));
+		List<List<Integer>> after    = new ArrayList<>(n);
+		int[]               before   = new int[n];
+		boolean             disjoint = false;
+		for (int k = 0; k < n; k++)
+			after.add(new ArrayList<>());
+		for (int k = 0; k < n; k++)
+			for (int j = k + 1; j < n; j++)
+				if (isDisjoint(routes[group.all[k]], segments.get(k), routes[group.all[j]], segments.get(j)))
+					disjoint = true;
+				else {
+					after.get(k).add(j);
+					before[j]++;
+				}
+		if (!disjoint)
+			return;
+		group.after = new int[n][];
+		for (int k = 0; k < n; k++)
+			group.after[k] = toArray(after.get(k));
+		group.before  = before;
+		group.scores  = new long[n];
+		group.matches = new AtomicInteger();
+		group.order   = group.all;
+	}
+
+	/**
+	 * @return true if no request can match both routes
+	 */
+	private static boolean isDisjoint(CompiledRoute a, List<String> aSegments, CompiledRoute b, List<String> bSegments) {
+		if (!a.method.equals(b.method) || aSegments.size() != bSegments.size())
+			return true;
+		for (int i = 0; i < aSegments.size(); i++) {
+			String aSegment = aSegments.get(i);
+			String bSegment = bSegments.get(i);
+			if (!isParam(aSegment) && !isParam(bSegment) && !aSegment.equals(bSegment))
+				return true;
+		}
+		for (String name : a.query.getNames()) {
+			String aLiteral = a.query.literal(name);
+			String bLiteral = b.query.literal(name);
+			if (aLiteral != null && bLiteral != null && !aLiteral.equals(bLiteral))
+				return true; // single value is required by both
+		}
+		return false;
+	}
+
+	private static boolean isParam(String segment) {
+		return segment.startsWith("{") && segment.endsWith("}");
+	}
+
+	private static Object routeKey(Group group, CompiledRoute route) {
+		switch (group.discriminator) {
+		case DISCRIMINATOR_QUERY:
+			return route.query.literal(group.name);
+		case DISCRIMINATOR_HEADER:
+			HeaderMatcher header = route.getHeader(group.name);
+			return header == null ? null : header.literal();
+		default:
+			return isBodyKeyable(route) ? route.bodyJsonHash : null;
+		}
+	}
+
+	/**
+	 * Provided value as compared by literal matcher
+	 */
+	private String key(String value) {
+		return processWildcards ? value.strip() : value;
+	}
+
+	/**
+	 * Body can match only a body with the same canonical hash.
+	 * Without '&amp;' and '=' the form fallback degrades to text equality, which implies equal hash.
+	 */
+	private static boolean isBodyKeyable(CompiledRoute route) {
+		return route.bodyJson != null && !route.bodyFromSource && isBodyKeyable(route.body);
+	}
+
+	private static boolean isBodyKeyable(String body) {
+		return body.indexOf('&') == -1 && body.indexOf('=') == -1;
+	}
+
+	private static int[] toArray(List<Integer> list) {
+		int[] arr = new int[list.size()];
+		for (int i = 0; i < arr.length; i++)
+			arr[i] = list.get(i);
+		return arr;
+	}
+
+	/**
+	 * Merge sorted arrays without duplicates
+	 */
+	private static int[] merge(int[] a, int[] b) {
+		if (a.length == 0)
+			return b;
+		if (b.length == 0)
+			return a;
+		int[] arr = new int[a.length + b.length];
+		int   i   = 0;
+		int   j   = 0;
+		int   n   = 0;
+		while (i < a.length && j < b.length) {
+			if (a[i] < b[j])
+				arr[n++] = a[i++];
+			else if (a[i] > b[j])
+				arr[n++] = b[j++];
+			else {
+				arr[n++] = a[i++];
+				j++;
+			}
+		}
+		while (i < a.length)
+			arr[n++] = a[i++];
+		while (j < b.length)
+			arr[n++] = b[j++];
+		return n == arr.length ? arr : Arrays.copyOf(arr, n);
+	}
+}
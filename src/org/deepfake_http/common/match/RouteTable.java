@@ -0,0 +1,61 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.match;
+
+import java.util.List;
+import java.util.Set;
+
+import org.deepfake_http.common.ReqResp;
+
+/**
+ * Dump entries with compiled request sides, replaced as a whole on reload
+ */
+public class RouteTable {
+	public final List<ReqResp>   reqResps;
+	public final CompiledRoute[] routes;
+	public final RouteIndex      index;
+	public final MatchCache      cache; // null if disabled
+
+	/**
+	 * @param reqResps
+	 * @param processWildcards
+	 * @param ignoredHeaders      - lower case names of request headers not used for matching
+	 * @param contentSourceHeader - lower case name of request header with body template source
+	 * @param matchCacheSize      - max number of cached matching results, 0 - no cache
+	 * @throws Exception
+	 */
+	public RouteTable(List<ReqResp> reqResps, boolean processWildcards, Set<String> ignoredHeaders, String contentSourceHeader, int matchCacheSize) throws Exception {
+		this.reqResps = reqResps;
+		this.routes   = new CompiledRoute[reqResps.size()];
+		for (int i = 0; i < routes.length; i++)
+			routes[i] = new CompiledRoute(reqResps.get(i), processWildcards, ignoredHeaders, contentSourceHeader);
+		this.index = new RouteIndex(routes, processWildcards);
+		this.cache = matchCacheSize > 0 ? new MatchCache(routes, matchCacheSize) : null;
+	}
+}
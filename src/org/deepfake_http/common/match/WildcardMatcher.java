@@ -0,0 +1,316 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.match;
+
+/**
+ * Wildcard pattern compiled once from a dump template value.
+ *
+ * The asterisk <code>*</code> matches any number of characters, the question mark <code>?</code>
+ * matches a single character, backslash escapes the next character (a trailing backslash is ignored).
+ * Both template and matched value are compared without leading and trailing whitespace.
+ * Matching does not allocate.
+ *
+ * Unlike the former <code>ij.util.WildcardMatch</code>, a star backtracks: <code>*b</code> matches <code>bb</code>
+ * and <code>a*b</code> matches <code>abab</code>. An escape applies to the next character only.
+ */
+public abstract class WildcardMatcher {
+	private static final int STAR = -1;
+	private static final int ONE  = -2;
+
+	private static final WildcardMatcher ANY = new WildcardMatcher() {
+		@Override
+		public boolean match(String s) {
+			return s != null;
+		}
+	};
+
+	/**
+	 * @param s - provided value, may be null
+	 * @return true if value matches
+	 */
+	public abstract boolean match(String s);
+
+	/**
+	 * @return value matched by plain comparison, null if pattern has wildcards
+	 */
+	public String literal() {
+		return null;
+	}
+
+	/**
+	 * Compile template value
+	 *
+	 * @param processWildcards - false: exact comparison
+	 * @param template
+	 * @return
+	 */
+	public static WildcardMatcher compile(boolean processWildcards, String template) {
+		if (!processWildcards)
+			return new Exact(template);
+		if ("*".equals(template))
+			return ANY;
+
+		String stripped = template.strip();
+		int[]  pattern  = tokenize(stripped);
+		int    stars    = 0;
+		int    ones     = 0;
+		for (int c : pattern)
+			if (c == STAR)
+				stars++;
+			else if (c == ONE)
+				ones++;
+
+		if (stars + ones == pattern.length && stripped.indexOf('\\') == -1) // not a dropped trailing backslash
+			return new Length(ones, stars > 0);
+		if (pattern.length == stripped.length()) { // no escapes, no repeated stars
+			if (stars == 0 && ones == 0)
+				return new Stripped(stripped);
+			if (ones == 0 && stars == 1) {
+				if (pattern[pattern.length - 1] == STAR)
+					return new Prefix(stripped.substring(0, stripped.length() - 1));
+				if (pattern[0] == STAR)
+					return new Suffix(stripped.substring(1));
+			}
+			if (ones == 0 && stars == 2 && pattern[0] == STAR && pattern[pattern.length - 1] == STAR && pattern.length > 2)
+				return new Contains(stripped.substring(1, stripped.length() - 1));
+		}
+		return new General(template, pattern);
+	}
+
+	/**
+	 * Pattern characters with escapes resolved, wildcards as negative codes
+	 */
+	private static int[] tokenize(String s) {
+		int[] arr = new int[s.length()];
+		int   n   = 0;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '\\') {
+				if (i < s.length() - 1) // trailing backslash is dropped
+					arr[n++] = s.charAt(++i);
+			} else if (c == '*') {
+				if (n == 0 || arr[n - 1] != STAR) // "**" is "*"
+					arr[n++] = STAR;
+			} else if (c == '?')
+				arr[n++] = ONE;
+			else
+				arr[n++] = c;
+		}
+		int[] pattern = new int[n];
+		System.arraycopy(arr, 0, pattern, 0, n);
+		return pattern;
+	}
+
+	private static int stripFrom(String s) {
+		int from = 0;
+		while (from < s.length() && Character.isWhitespace(s.charAt(from)))
+			from++;
+		return from;
+	}
+
+	private static int stripTo(String s, int from) {
+		int to = s.length();
+		while (to > from && Character.isWhitespace(s.charAt(to - 1)))
+			to--;
+		return to;
+	}
+
+	/**
+	 * Wildcards disabled
+	 */
+	private static class Exact extends WildcardMatcher {
+		private final String value;
+
+		Exact(String value) {
+			this.value = value;
+		}
+
+		@Override
+		public String literal() {
+			return value;
+		}
+
+		@Override
+		public boolean match(String s) {
+			return value.equals(s);
+		}
+	}
+
+	/**
+	 * No wildcards
+	 */
+	private static class Stripped extends WildcardMatcher {
+		private final String value;
+
+		Stripped(String value) {
+			this.value = value;
+		}
+
+		@Override
+		public String literal() {
+			return value;
+		}
+
+		@Override
+		public boolean match(String s) {
+			if (s == null)
+				return false;
+			int from = stripFrom(s);
+			int to   = stripTo(s, from);
+			return to - from == value.length() && s.startsWith(value, from);
+		}
+	}
+
+	/**
+	 * Wildcards only, e.g. "?*"
+	 */
+	private static class Length extends WildcardMatcher {
+		private final int     length;
+		private final boolean orLonger;
+
+		Length(int length, boolean orLonger) {
+			this.length   = length;
+			this.orLonger = orLonger;
+		}
+
+		@Override
+		public boolean match(String s) {
+			if (s == null)
+				return false;
+			int from = stripFrom(s);
+			int len  = stripTo(s, from) - from;
+			return orLonger ? len >= length : len == length;
+		}
+	}
+
+	/**
+	 * E.g. "abc*"
+	 */
+	private static class Prefix extends WildcardMatcher {
+		private final String prefix;
+
+		Prefix(String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public boolean match(String s) {
+			if (s == null)
+				return false;
+			int from = stripFrom(s);
+			int to   = stripTo(s, from);
+			return to - from >= prefix.length() && s.startsWith(prefix, from);
+		}
+	}
+
+	/**
+	 * E.g. "*abc"
+	 */
+	private static class Suffix extends WildcardMatcher {
+		private final String suffix;
+
+		Suffix(String suffix) {
+			this.suffix = suffix;
+		}
+
+		@Override
+		public boolean match(String s) {
+			if (s == null)
+				return false;
+			int from = stripFrom(s);
+			int to   = stripTo(s, from);
+			return to - from >= suffix.length() && s.startsWith(suffix, to - suffix.length());
+		}
+	}
+
+	/**
+	 * E.g. "*abc*"
+	 */
+	private static class Contains extends WildcardMatcher {
+		private final String infix;
+
+		Contains(String infix) {
+			this.infix = infix;
+		}
+
+		@Override
+		public boolean match(String s) {
+			if (s == null)
+				return false;
+			int from = stripFrom(s);
+			int to   = stripTo(s, from);
+			int pos  = s.indexOf(infix, from);
+			return pos != -1 && pos + infix.length() <= to;
+		}
+	}
+
+	/**
+	 * Any pattern: greedy scan backtracking to the last star, O(n * m) worst case
+	 */
+	private static class General extends WildcardMatcher {
+		private final String template;
+		private final int[]  pattern;
+
+		General(String template, int[] pattern) {
+			this.template = template;
+			this.pattern  = pattern;
+		}
+
+		@Override
+		public boolean match(String s) {
+			if (s == null)
+				return false;
+			if (template.equals(s))
+				return true;
+			int from  = stripFrom(s);
+			int to    = stripTo(s, from);
+			int n     = pattern.length;
+			int p     = 0;
+			int i     = from;
+			int starP = -1;
+			int starI = 0;
+			while (i < to) {
+				if (p < n && (pattern[p] == ONE || pattern[p] == s.charAt(i))) {
+					p++;
+					i++;
+				} else if (p < n && pattern[p] == STAR) {
+					starP = p++;
+					starI = i;
+				} else if (starP != -1) {
+					p = starP + 1;
+					i = ++starI;
+				} else
+					return false;
+			}
+			while (p < n && pattern[p] == STAR)
+				p++;
+			return p == n;
+		}
+	}
+}
@@ -0,0 +1 @@
+package org.deepfake_http.common.match;
\ No newline at end of file
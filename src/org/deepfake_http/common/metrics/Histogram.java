@@ -0,0 +1,172 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-linear (HDR-style) histogram.
+ * Every power of two range is split into 16 linear sub-buckets, so any recorded value
+ * is reported with at most 1/16 relative error. Recording is a few atomic increments.
+ */
+public class Histogram {
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS     = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS         = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder       count  = new LongAdder();
+	private final LongAdder       sum    = new LongAdder();
+	private final LongAccumulator max    = new LongAccumulator(Long::max, 0);
+
+	/**
+	 * @param value - non-negative value, e.g. nanoseconds
+	 */
+	public void record(long value) {
+		if (value < 0)
+			value = 0;
+		counts.incrementAndGet(index(value));
+		count.increment();
+		sum.add(value);
+		max.accumulate(value);
+	}
+
+	/**
+	 * @return consistent enough copy for reporting
+	 */
+	public Snapshot snapshot() {
+		long[] snapshotCounts = new long[BUCKETS];
+		long   total          = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshotCounts[i] = counts.get(i);
+			total += snapshotCounts[i];
+		}
+		return new Snapshot(snapshotCounts, total, sum.sum(), max.get());
+	}
+
+	static int index(long value) {
+		if (value < SUB_BUCKETS)
+			return (int) value;
+		int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+		int sub      = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	static long lowerBound(int index) {
+		if (index < SUB_BUCKETS)
+			return index;
+		int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		int sub      = index % SUB_BUCKETS;
+		return (long) (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+	}
+
+	static long upperBound(int index) {
+		return index + 1 >= BUCKETS ? Long.MAX_VALUE : lowerBound(index + 1) - 1;
+	}
+
+	/**
+	 * Point-in-time histogram copy
+	 */
+	public static class Snapshot {
+		private final long[] counts;
+		private final long   count;
+		private final long   sum;
+		private final long   max;
+
+		Snapshot(long[] counts, long count, long sum, long max) {
+			this.counts = counts;
+			this.count  = count;
+			this.sum    = sum;
+			this.max    = max;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getSum() {
+			return sum;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		/**
+		 * @param quantile - 0..1
+		 * @return bucket midpoint value at the quantile, 0 if empty
+		 */
+		public long getValueAtQuantile(double quantile) {
+			if (count == 0)
+				return 0;
+			long rank       = Math.max(1, (long) Math.ceil(quantile * count));
+			long cumulative = 0;
+			for (int i = 0; i < counts.length; i++) {
+				cumulative += counts[i];
+				if (cumulative >= rank) {
+					long lower = lowerBound(i);
+					long upper = upperBound(i);
+					return Math.min(lower + (upper - lower) / 2, max);
+				}
+			}
+			return max;
+		}
+
+		/**
+		 * Coordinated omission correction: every recorded value longer than the expected interval
+		 * means requests that would have been sent meanwhile were delayed, add them with
+		 * linearly decreasing values (value - interval, value - 2 * interval ...).
+		 *
+		 * @param expectedInterval - expected interval between requests, 0 - no correction
+		 * @return corrected copy
+		 */
+		public Snapshot correctedForCoordinatedOmission(long expectedInterval) {
+			if (expectedInterval <= 0)
+				return this;
+			long[] correctedCounts = counts.clone();
+			long   correctedCount  = count;
+			long   correctedSum    = sum;
+			for (int i = 0; i < counts.length; i++) {
+				long n = counts[i];
+				if (n == 0)
+					continue;
+				long lower = lowerBound(i);
+				long value = Math.min(lower + (upperBound(i) - lower) / 2, max);
+				for (long missing = value - expectedInterval; missing >= expectedInterval; missing -= expectedInterval) {
+					correctedCounts[index(missing)] += n;
+					correctedCount                  += n;
+					correctedSum                    += n * missing;
+				}
+			}
+			return new Snapshot(correctedCounts, correctedCount, correctedSum, max);
+		}
+	}
+}
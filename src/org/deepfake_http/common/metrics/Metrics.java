@@ -0,0 +1,272 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.deepfake_http.common.ReqResp;
+import org.deepfake_http.common.log.AccessLogEvent;
+
+/**
+ * Servlet metrics registry.
+ * All counters are LongAdders and all histograms are lock-free, recording never contends.
+ */
+public class Metrics {
+	private static final double[] QUANTILES       = { 0.5, 0.9, 0.99, 0.999 };
+	private static final String[] QUANTILE_NAMES  = { "p50", "p90", "p99", "p999" };
+	private static final double   NANOS_IN_SECOND = 1_000_000_000.0;
+
+	private final Map<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+
+	private volatile RouteMetricsTable routeMetricsTable;
+
+	public final LongAdder unmatched = new LongAdder();
+
+	public final Histogram jsHandler  = new Histogram();
+	public final Histogram cgiHandler = new Histogram();
+	public final Histogram forward    = new Histogram();
+
+	public final LongAdder reloads = new LongAdder();
+	public final Histogram reload  = new Histogram();
+
+	public final AtomicLong requestsInFlight = new AtomicLong();
+	public final AtomicLong writesInFlight   = new AtomicLong();
+
+	/**
+	 * Dump entries of the same file and line keep their counters across reloads
+	 *
+	 * @param dumpFile
+	 * @param lineNumber
+	 * @return
+	 */
+	public RouteMetrics route(String dumpFile, int lineNumber) {
+		return routes.computeIfAbsent(dumpFile + ':' + lineNumber, key -> new RouteMetrics(dumpFile, lineNumber));
+	}
+
+	/**
+	 * @param reqResps - loaded dump entries
+	 * @return route metrics in the same order as dump entries
+	 */
+	public RouteMetrics[] getRoutes(List<ReqResp> reqResps) {
+		RouteMetricsTable table = routeMetricsTable;
+		if (table == null || table.reqResps != reqResps) {
+			RouteMetrics[] arr = new RouteMetrics[reqResps.size()];
+			for (int i = 0; i < arr.length; i++) {
+				ReqResp reqResp = reqResps.get(i);
+				arr[i] = route(reqResp.dumpFile, reqResp.request.lineNumber);
+			}
+			table             = new RouteMetricsTable(reqResps, arr);
+			routeMetricsTable = table;
+		}
+		return table.routes;
+	}
+
+	/**
+	 * Processing started
+	 */
+	public void requestStarted() {
+		requestsInFlight.incrementAndGet();
+	}
+
+	/**
+	 * Response body writing started
+	 */
+	public void writeStarted() {
+		writesInFlight.incrementAndGet();
+	}
+
+	/**
+	 * Request completed: record route hit and stage latencies
+	 *
+	 * @param event
+	 */
+	public void requestCompleted(AccessLogEvent event) {
+		requestsInFlight.decrementAndGet();
+		if (event.handled)
+			writesInFlight.decrementAndGet();
+		if (event.dumpFile == null)
+			return;
+		RouteMetrics route = route(event.dumpFile, event.lineNumber);
+		route.hits.increment();
+		if (event.startNanos != 0) {
+			route.match.record(event.matchNanos);
+			route.template.record(event.templateNanos);
+			route.handler.record(event.handlerNanos);
+			route.write.record(event.writeNanos);
+		}
+	}
+
+	/**
+	 * @return Prometheus text exposition format
+	 */
+	public String toPrometheus() {
+		StringBuilder sb = new StringBuilder();
+
+		List<RouteMetrics> routeList = new ArrayList<>(routes.values());
+
+		sb.append("# HELP deepfake_route_hits_total Requests answered by dump entry\n");
+		sb.append("# TYPE deepfake_route_hits_total counter\n");
+		for (RouteMetrics route : routeList)
+			sb.append("deepfake_route_hits_total").append(routeLabels(route, null)).append(' ').append(route.hits.sum()).append('\n');
+
+		sb.append("# HELP deepfake_route_misses_total Times dump entry was evaluated as a candidate and rejected\n");
+		sb.append("# TYPE deepfake_route_misses_total counter\n");
+		for (RouteMetrics route : routeList)
+			sb.append("deepfake_route_misses_total").append(routeLabels(route, null)).append(' ').append(route.misses.sum()).append('\n');
+
+		sb.append("# HELP deepfake_route_stage_seconds Request processing stage latency by dump entry\n");
+		sb.append("# TYPE deepfake_route_stage_seconds summary\n");
+		for (RouteMetrics route : routeList) {
+			appendSummary(sb, "deepfake_route_stage_seconds", routeLabels(route, "match"), route.match);
+			appendSummary(sb, "deepfake_route_stage_seconds", routeLabels(route, "template"), route.template);
+			appendSummary(sb, "deepfake_route_stage_seconds", routeLabels(route, "handler"), route.handler);
+			appendSummary(sb, "deepfake_route_stage_seconds", routeLabels(route, "write"), route.write);
+		}
+
+		sb.append("# HELP deepfake_unmatched_total Requests not matching any dump entry\n");
+		sb.append("# TYPE deepfake_unmatched_total counter\n");
+		sb.append("deepfake_unmatched_total ").append(unmatched.sum()).append('\n');
+
+		sb.append("# HELP deepfake_handler_seconds Handler latency\n");
+		sb.append("# TYPE deepfake_handler_seconds summary\n");
+		appendSummary(sb, "deepfake_handler_seconds", "{handler=\"js\"", jsHandler);
+		appendSummary(sb, "deepfake_handler_seconds", "{handler=\"cgi\"", cgiHandler);
+		appendSummary(sb, "deepfake_handler_seconds", "{handler=\"forward\"", forward);
+
+		sb.append("# HELP deepfake_reloads_total Dump, JavaScript and data file reloads\n");
+		sb.append("# TYPE deepfake_reloads_total counter\n");
+		sb.append("deepfake_reloads_total ").append(reloads.sum()).append('\n');
+
+		sb.append("# HELP deepfake_reload_seconds Reload duration\n");
+		sb.append("# TYPE deepfake_reload_seconds summary\n");
+		appendSummary(sb, "deepfake_reload_seconds", "{", reload);
+
+		sb.append("# HELP deepfake_requests_in_flight Requests being processed\n");
+		sb.append("# TYPE deepfake_requests_in_flight gauge\n");
+		sb.append("deepfake_requests_in_flight ").append(requestsInFlight.get()).append('\n');
+
+		sb.append("# HELP deepfake_writes_in_flight Response bodies being written asynchronously\n");
+		sb.append("# TYPE deepfake_writes_in_flight gauge\n");
+		sb.append("deepfake_writes_in_flight ").append(writesInFlight.get()).append('\n');
+
+		return sb.toString();
+	}
+
+	/**
+	 * @return metrics as map for JSON output, latencies in microseconds
+	 */
+	public Map<String, Object> toMap() {
+		Map<String, Object> map = new LinkedHashMap<>();
+
+		List<Map<String, Object>> routeList = new ArrayList<>();
+		for (RouteMetrics route : routes.values()) {
+			Map<String, Object> routeMap = new LinkedHashMap<>();
+			routeMap.put("dumpFile", route.dumpFile);
+			routeMap.put("lineNumber", route.lineNumber);
+			routeMap.put("hits", route.hits.sum());
+			routeMap.put("misses", route.misses.sum());
+			routeMap.put("match", histogramToMap(route.match));
+			routeMap.put("template", histogramToMap(route.template));
+			routeMap.put("handler", histogramToMap(route.handler));
+			routeMap.put("write", histogramToMap(route.write));
+			routeList.add(routeMap);
+		}
+		map.put("routes", routeList);
+		map.put("unmatched", unmatched.sum());
+
+		Map<String, Object> handlersMap = new LinkedHashMap<>();
+		handlersMap.put("js", histogramToMap(jsHandler));
+		handlersMap.put("cgi", histogramToMap(cgiHandler));
+		handlersMap.put("forward", histogramToMap(forward));
+		map.put("handlers", handlersMap);
+
+		map.put("reloads", reloads.sum());
+		map.put("reload", histogramToMap(reload));
+		map.put("requestsInFlight", requestsInFlight.get());
+		map.put("writesInFlight", writesInFlight.get());
+		return map;
+	}
+
+	private static Map<String, Object> histogramToMap(Histogram histogram) {
+		Histogram.Snapshot  snapshot = histogram.snapshot();
+		Map<String, Object> map      = new LinkedHashMap<>();
+		map.put("count", snapshot.getCount());
+		map.put("sumMicros", snapshot.getSum() / 1000);
+		for (int i = 0; i < QUANTILES.length; i++)
+			map.put(QUANTILE_NAMES[i] + "Micros", snapshot.getValueAtQuantile(QUANTILES[i]) / 1000);
+		map.put("maxMicros", snapshot.getMax() / 1000);
+		return map;
+	}
+
+	/**
+	 * @param sb
+	 * @param name
+	 * @param labels    - opening brace and labels without closing brace
+	 * @param histogram
+	 */
+	private static void appendSummary(StringBuilder sb, String name, String labels, Histogram histogram) {
+		Histogram.Snapshot snapshot = histogram.snapshot();
+		String             sep      = labels.length() > 1 ? "," : "";
+		for (double quantile : QUANTILES)
+			sb.append(name).append(labels).append(sep).append("quantile=\"").append(quantile).append("\"} ").append(snapshot.getValueAtQuantile(quantile) / NANOS_IN_SECOND).append('\n');
+		String closedLabels = labels.length() > 1 ? labels + '}' : "";
+		sb.append(name).append("_sum").append(closedLabels).append(' ').append(snapshot.getSum() / NANOS_IN_SECOND).append('\n');
+		sb.append(name).append("_count").append(closedLabels).append(' ').append(snapshot.getCount()).append('\n');
+	}
+
+	/**
+	 * @param route
+	 * @param stage - stage label or null
+	 * @return closed label set if stage is null, otherwise open label set
+	 */
+	private static String routeLabels(RouteMetrics route, String stage) {
+		String labels = "{dump=\"" + escapeLabelValue(route.dumpFile) + "\",line=\"" + route.lineNumber + '"';
+		return stage == null ? labels + '}' : labels + ",stage=\"" + stage + '"';
+	}
+
+	private static String escapeLabelValue(String s) {
+		return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	private static class RouteMetricsTable {
+		final List<ReqResp>  reqResps;
+		final RouteMetrics[] routes;
+
+		RouteMetricsTable(List<ReqResp> reqResps, RouteMetrics[] routes) {
+			this.reqResps = reqResps;
+			this.routes   = routes;
+		}
+	}
+}
@@ -0,0 +1 @@
+package org.deepfake_http.common.metrics;
\ No newline at end of file
@@ -0,0 +1,188 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.servlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+import org.deepfake_http.common.FirstLineResp;
+import org.deepfake_http.common.Header;
+import org.deepfake_http.common.cgi.ICgiOutputHandler;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Sends CGI/XGI status and headers to the client as soon as they are parsed and streams the body after them.
+ * If the dump provides its own response body, the program output body is discarded and nothing is sent.
+ */
+class CgiResponseStreamer implements ICgiOutputHandler {
+
+	private HttpServletResponse response;
+	private Map<String, String> responseHeaders;
+	private boolean             overrideBody;
+	private int                 responseDelay;
+	private String              contentType;
+	private int                 maxCapture;
+
+	private int     status;
+	private String  message;
+	private boolean streamed;
+	private long    bytesSent;
+
+	private ByteArrayOutputStream captureBaos = new ByteArrayOutputStream();
+
+	/**
+	 * @param response
+	 * @param status          - status from dump (0 - use status from XGI output)
+	 * @param message
+	 * @param responseHeaders - headers from dump, CGI headers are merged in
+	 * @param overrideBody    - dump provides its own response body
+	 * @param responseDelay
+	 * @param contentType
+	 * @param maxCapture      - max body bytes kept for logging
+	 */
+	CgiResponseStreamer(HttpServletResponse response, int status, String message, Map<String, String> responseHeaders, boolean overrideBody, int responseDelay, String contentType, int maxCapture) {
+		this.response        = response;
+		this.status          = status;
+		this.message         = message;
+		this.responseHeaders = responseHeaders;
+		this.overrideBody    = overrideBody;
+		this.responseDelay   = responseDelay;
+		this.contentType     = contentType;
+		this.maxCapture      = maxCapture;
+	}
+
+	@Override
+	public OutputStream onHeaders(String firstLine, List<String> headers) throws IOException {
+		try {
+			if (firstLine != null) {
+				FirstLineResp firstLineRespCgi = new FirstLineResp(firstLine);
+				if (status == 0) {
+					status  = firstLineRespCgi.getStatus();
+					message = firstLineRespCgi.getMessage();
+				}
+			}
+			for (String headerStr : headers) {
+				Header header = new Header(headerStr);
+				if (!responseHeaders.containsKey(header.name))
+					responseHeaders.put(header.name, header.value);
+			}
+		} catch (Exception e) {
+			throw new IOException(e.getMessage(), e);
+		}
+
+		if (overrideBody)
+			return OutputStream.nullOutputStream();
+
+		if (responseDelay != 0)
+			try {
+				Thread.sleep(responseDelay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			}
+		if (contentType != null)
+			responseHeaders.put(DeepfakeHttpServlet.HTTP_HEADER_CONTENT_TYPE, contentType);
+
+		setStatus(response, status, message);
+		for (Map.Entry<String, String> entry : responseHeaders.entrySet())
+			response.setHeader(entry.getKey(), entry.getValue());
+
+		streamed = true;
+		OutputStream responseOutputStream = response.getOutputStream();
+		return new OutputStream() {
+
+			@Override
+			public void write(int b) throws IOException {
+				write(new byte[] { (byte) b }, 0, 1);
+			}
+
+			@Override
+			public void write(byte[] bs, int off, int len) throws IOException {
+				responseOutputStream.write(bs, off, len);
+				bytesSent += len;
+				int captureLen = Math.min(len, maxCapture - captureBaos.size());
+				if (captureLen > 0)
+					captureBaos.write(bs, off, captureLen);
+			}
+
+			@Override
+			public void flush() throws IOException {
+				responseOutputStream.flush();
+			}
+		};
+	}
+
+	/**
+	 * Status with the reason phrase reported by the program, as for buffered responses
+	 *
+	 * @param response
+	 * @param status
+	 * @param message  - null for default reason phrase
+	 */
+	@SuppressWarnings("deprecation")
+	private static void setStatus(HttpServletResponse response, int status, String message) {
+		if (message == null)
+			response.setStatus(status);
+		else
+			response.setStatus(status, message);
+	}
+
+	/**
+	 * @return status and headers are sent and the body is written to the client
+	 */
+	boolean isStreamed() {
+		return streamed;
+	}
+
+	int getStatus() {
+		return status;
+	}
+
+	String getMessage() {
+		return message;
+	}
+
+	/**
+	 * @return body bytes written to the client
+	 */
+	long getBytesSent() {
+		return bytesSent;
+	}
+
+	/**
+	 * @return captured body prefix (for logging)
+	 */
+	byte[] getCapturedBody() {
+		return captureBaos.toByteArray();
+	}
+}
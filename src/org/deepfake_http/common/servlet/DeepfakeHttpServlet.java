@@ -38,6 +38,7 @@ import java.io.OutputStream;
 import java.io.StringReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
@@ -45,12 +46,12 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
-import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.text.MessageFormat;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -59,18 +60,47 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
 
 import javax.naming.InitialContext;
+import javax.naming.NamingException;
 
-import org.apache.hive.common.util.Murmur3;
+import org.deepfake_http.common.Body;
+import org.deepfake_http.common.BodySpill;
+import org.deepfake_http.common.ContentPool;
 import org.deepfake_http.common.FirstLineReq;
 import org.deepfake_http.common.FirstLineResp;
 import org.deepfake_http.common.Header;
 import org.deepfake_http.common.ReqResp;
+import org.deepfake_http.common.cgi.CgiRunner;
+import org.deepfake_http.common.cgi.CgiTimeoutException;
+import org.deepfake_http.common.cgi.CgiWorkerPools;
 import org.deepfake_http.common.dir_watcher.DirectoryWatcher;
+import org.deepfake_http.common.jfr.CgiEvent;
+import org.deepfake_http.common.jfr.DbExportEvent;
+import org.deepfake_http.common.jfr.ForwardEvent;
+import org.deepfake_http.common.jfr.JsHandlerEvent;
+import org.deepfake_http.common.jfr.MatchEvent;
+import org.deepfake_http.common.jfr.ReloadEvent;
+import org.deepfake_http.common.log.AccessLogEvent;
+import org.deepfake_http.common.log.CollectAppender;
+import org.deepfake_http.common.log.ConsoleAppender;
+import org.deepfake_http.common.log.JsonAccessLogAppender;
+import org.deepfake_http.common.log.OverflowPolicy;
+import org.deepfake_http.common.match.CompiledRoute;
+import org.deepfake_http.common.match.MatchCache;
+import org.deepfake_http.common.match.ParallelMatcher;
+import org.deepfake_http.common.match.PathShapes;
+import org.deepfake_http.common.match.JsonHash;
+import org.deepfake_http.common.match.QueryMatcher;
+import org.deepfake_http.common.match.RouteTable;
+import org.deepfake_http.common.metrics.Histogram;
+import org.deepfake_http.common.metrics.Metrics;
+import org.deepfake_http.common.metrics.RouteMetrics;
 import org.deepfake_http.common.utils.HeaderUtils;
 import org.deepfake_http.common.utils.HttpPathUtils;
 import org.deepfake_http.common.utils.IAnsi;
@@ -96,6 +126,7 @@ import jakarta.servlet.AsyncEvent;
 import jakarta.servlet.AsyncListener;
 import jakarta.servlet.ServletConfig;
 import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -120,6 +151,7 @@ public class DeepfakeHttpServlet extends HttpServlet {
 	private static final String INTERNAL_HTTP_HEADER_X_SERVER_HANDLER_CGI    = "X-Handler-CGI";    // response non-standard
 	private static final String INTERNAL_HTTP_HEADER_X_SERVER_HANDLER_XGI    = "X-Handler-XGI";    // response non-standard
 	private static final String INTERNAL_HTTP_HEADER_X_SERVER_HANDLER_JS     = "X-Handler-JS";     // response non-standard
+	private static final String INTERNAL_HTTP_HEADER_X_SERVER_HANDLER_TIMEOUT = "X-Handler-Timeout"; // response non-standard
 	private static final String INTERNAL_HTTP_HEADER_X_SERVER_FORWARD_TO     = "X-Forward-To";     // response non-standard
 
 	public static final String INTERNAL_HTTP_HEADER_X_OPENAPI_SUMMARY     = "X-OpenAPI-Summary";    // request non-standard
@@ -127,12 +159,22 @@ public class DeepfakeHttpServlet extends HttpServlet {
 	public static final String INTERNAL_HTTP_HEADER_X_OPENAPI_TAGS        = "X-OpenAPI-Tags";       // request non-standard
 	public static final String INTERNAL_HTTP_HEADER_X_OPENAPI_PARAMETERS  = "X-OpenAPI-Parameters"; // request non-standard
 
-	private static boolean WINDOWS_OS = System.getProperty("os.name").toLowerCase(Locale.ENGLISH).startsWith("windows");
+	/* request headers not matched against client request, lower case */
+	private static final Set<String> MATCH_IGNORED_REQUEST_HEADERS = Set.of( //
+			INTERNAL_HTTP_HEADER_X_OPENAPI_DESCRIPTION.toLowerCase(Locale.ENGLISH), //
+			INTERNAL_HTTP_HEADER_X_OPENAPI_SUMMARY.toLowerCase(Locale.ENGLISH), //
+			INTERNAL_HTTP_HEADER_X_OPENAPI_TAGS.toLowerCase(Locale.ENGLISH), //
+			INTERNAL_HTTP_HEADER_X_OPENAPI_PARAMETERS.toLowerCase(Locale.ENGLISH), //
+			INTERNAL_HTTP_HEADER_X_SERVER_DELAY.toLowerCase(Locale.ENGLISH), //
+			INTERNAL_HTTP_HEADER_X_SERVER_CONTENT_SOURCE.toLowerCase(Locale.ENGLISH) //
+	);
 
-	private static final String X_SERVER_VALUE = "DeepfakeHTTP " + System.getProperty("build.version") + " (" + System.getProperty("build.timestamp") + ")";
+	static final String X_SERVER_VALUE = "DeepfakeHTTP " + System.getProperty("build.version") + " (" + System.getProperty("build.timestamp") + ")";
 
 	private static final String FILE_PREFIX = "file://";
 
+	private static final long DIR_MISS_TTL = 1000; // ms, --dir is not watched for changes
+
 	private byte[] openApiJsonBs;
 	private byte[] openApiYamlBs;
 
@@ -151,8 +193,17 @@ public class DeepfakeHttpServlet extends HttpServlet {
 	private boolean noBak;
 	private boolean exportOnExit;
 	private boolean strictJson;
+	private boolean noLogDns;
 	private int     badRequestStatus;
 	private int     maxLogBody;
+	private int     cgiWorkers;
+	private int     matchCache;
+	private int     matchParallelism;
+	private int     cgiTimeout;
+	private long    cgiMaxOutput;
+	private long    maxBody;
+	private long    bodyBuffer;
+	private int     bodySpill;
 
 	private String collectFile;
 	private String openApiPath;
@@ -160,8 +211,14 @@ public class DeepfakeHttpServlet extends HttpServlet {
 	private String dataFile;
 	private String dbExportFile;
 	private String dbPath;
+	private String metricsPath;
 
-	private String dir;
+	private String              dir;
+	private MissCache           dirMisses;      // recent --dir lookups without matching file
+	private volatile PathShapes dirShapes;      // shapes of --dir file paths, rebuilt after DIR_MISS_TTL
+	private volatile long       dirShapesNanos;
+	private final Object        dirShapesLock       = new Object();
+	private final AtomicBoolean dirShapesRebuilding = new AtomicBoolean();
 
 	private List<String /* dump file */>       dumps;
 	private List<String /* JavaScript file */> jss;
@@ -170,12 +227,27 @@ public class DeepfakeHttpServlet extends HttpServlet {
 
 	private Map<Path /* dirPath */, DirectoryWatcher> directoryWatchersMap = new HashMap<>();
 
+	private CgiWorkerPools cgiWorkerPools;
+
+	private ParallelMatcher parallelMatcher; // null if --match-parallelism is not set
+
+	private CollectAppender collectAppender;
+	private ConsoleAppender consoleAppender;
+
+	private JsonAccessLogAppender accessLogAppender;
+
+	private Metrics metrics;
+
+	private final BufferPool bodyBufferPool = new BufferPool(16 * 1024, 256);
+
 	private Object   dataMap;
 	private JsonNode dataJsonNode;
 	private String   dataJson;
 
 	private List<ReqResp> allReqResps;
 
+	private volatile RouteTable routeTable;
+
 	private Path catalinaBase;
 	private Path catalinaHome;
 
@@ -201,17 +273,31 @@ public class DeepfakeHttpServlet extends HttpServlet {
 	 */
 	@Override
 	public void init(ServletConfig servletConfig) throws ServletException {
-		logger = Logger.getLogger(getClass().getName());
-		logger.log(Level.INFO, "DeepfakeHTTP Logger: HELLO!");
+		String[] args;
 		try {
 			InitialContext ctx = new InitialContext();
 
 			/* get custom command-line args */
-			String[] args = (String[]) ctx.lookup("java:comp/env/tommy/args");
+			args = (String[]) ctx.lookup("java:comp/env/tommy/args");
 
 			catalinaBase = (Path) ctx.lookup("java:comp/env/tommy/catalina_base");
 			catalinaHome = (Path) ctx.lookup("java:comp/env/tommy/catalina_home");
+		} catch (NamingException e) {
+			throw new ServletException(e);
+		}
+		init(args);
+	}
 
+	/**
+	 * Initialize with command-line args.
+	 * Called by container init or directly by in-process harness (no JNDI environment, no Tomcat work directories)
+	 *
+	 * @param args - command-line args
+	 */
+	public void init(String[] args) {
+		logger = Logger.getLogger(getClass().getName());
+		logger.log(Level.INFO, "DeepfakeHTTP Logger: HELLO!");
+		try {
 			Map<String, Object> paramMap = ParseCommandLineUtils.parseCommandLineArgs(null, args);
 			dumps            = (List<String>) paramMap.get(ParseCommandLineUtils.ARGS_DUMP);
 			jss              = (List<String>) paramMap.get(ParseCommandLineUtils.ARGS_JS);
@@ -235,13 +321,64 @@ public class DeepfakeHttpServlet extends HttpServlet {
 			strictJson       = (boolean) paramMap.get(ParseCommandLineUtils.ARGS_STRICT_JSON);
 			collectFile      = (String) paramMap.get(ParseCommandLineUtils.ARGS_COLLECT);
 			openApiPath      = (String) paramMap.get(ParseCommandLineUtils.ARGS_OPENAPI_PATH);
+			metricsPath      = (String) paramMap.get(ParseCommandLineUtils.ARGS_METRICS_PATH);
 			openApiTitle     = (String) paramMap.get(ParseCommandLineUtils.ARGS_OPENAPI_TITLE);
 			badRequestStatus = (int) paramMap.get(ParseCommandLineUtils.ARGS_STATUS);
 			maxLogBody       = (int) paramMap.get(ParseCommandLineUtils.ARGS_MAX_LOG_BODY);
+			cgiWorkers       = (int) paramMap.get(ParseCommandLineUtils.ARGS_CGI_WORKERS);
+			matchCache       = (int) paramMap.get(ParseCommandLineUtils.ARGS_MATCH_CACHE);
+			matchParallelism = (int) paramMap.get(ParseCommandLineUtils.ARGS_MATCH_PARALLELISM);
+			cgiTimeout       = (int) paramMap.get(ParseCommandLineUtils.ARGS_CGI_TIMEOUT);
+			cgiMaxOutput     = (long) paramMap.get(ParseCommandLineUtils.ARGS_CGI_MAX_OUTPUT);
+			maxBody          = (long) paramMap.get(ParseCommandLineUtils.ARGS_MAX_BODY);
+			bodyBuffer       = (long) paramMap.get(ParseCommandLineUtils.ARGS_BODY_BUFFER);
+			bodySpill        = (int) paramMap.get(ParseCommandLineUtils.ARGS_BODY_SPILL);
 
 			if (openApiTitle == null)
 				openApiTitle = "";
 
+			int            logQueue    = (int) paramMap.get(ParseCommandLineUtils.ARGS_LOG_QUEUE);
+			OverflowPolicy logOverflow = OverflowPolicy.parse((String) paramMap.get(ParseCommandLineUtils.ARGS_LOG_OVERFLOW));
+
+			if (!noLog) {
+				int logSample = (int) paramMap.get(ParseCommandLineUtils.ARGS_LOG_SAMPLE);
+				int logRate   = (int) paramMap.get(ParseCommandLineUtils.ARGS_LOG_RATE);
+				noLogDns        = (boolean) paramMap.get(ParseCommandLineUtils.ARGS_NO_LOG_DNS);
+				consoleAppender = new ConsoleAppender(logger, !noColor, !nologRequestInfo, !noLogHeaders, !noLogBody, badRequestStatus, logSample, logRate, logQueue, logOverflow);
+				consoleAppender.start();
+			}
+
+			String accessLogFile = (String) paramMap.get(ParseCommandLineUtils.ARGS_ACCESS_LOG);
+			if (accessLogFile != null) {
+				accessLogAppender = new JsonAccessLogAppender(logger, Paths.get(accessLogFile), logQueue, logOverflow);
+				accessLogAppender.start();
+			}
+
+			if (metricsPath != null)
+				metrics = new Metrics();
+
+			if (collectFile != null) {
+				long    collectRotateSize = (long) paramMap.get(ParseCommandLineUtils.ARGS_COLLECT_ROTATE_SIZE);
+				long    collectRotateTime = (long) paramMap.get(ParseCommandLineUtils.ARGS_COLLECT_ROTATE_TIME);
+				boolean collectGzip       = (boolean) paramMap.get(ParseCommandLineUtils.ARGS_COLLECT_GZIP);
+				collectAppender = new CollectAppender(logger, Paths.get(collectFile), collectRotateSize, collectRotateTime, collectGzip, logQueue, logOverflow);
+				collectAppender.start();
+			}
+
+			int dirMissCache = (int) paramMap.get(ParseCommandLineUtils.ARGS_DIR_MISS_CACHE);
+			if (dir != null && dirMissCache > 0)
+				dirMisses = new MissCache(dirMissCache, DIR_MISS_TTL);
+
+			if (matchParallelism > 0)
+				parallelMatcher = new ParallelMatcher(matchParallelism);
+
+			if (cgiWorkers > 0) {
+				cgiWorkerPools = new CgiWorkerPools(logger, cgiWorkers);
+				Thread cgiHealthCheckThread = new Thread(cgiWorkerPools);
+				cgiHealthCheckThread.setDaemon(true);
+				cgiHealthCheckThread.start();
+			}
+
 			boolean activateDirWatchers = !noWatch;
 
 			reload(activateDirWatchers);
@@ -262,9 +399,19 @@ public class DeepfakeHttpServlet extends HttpServlet {
 			@Override
 			public void run() {
 				try {
+					if (cgiWorkerPools != null)
+						cgiWorkerPools.close();
+					if (collectAppender != null)
+						collectAppender.close();
+					if (consoleAppender != null)
+						consoleAppender.close();
+					if (accessLogAppender != null)
+						accessLogAppender.close();
 					exportMemoryDataToFile();
-					deleteDir(catalinaBase);
-					deleteDir(catalinaHome);
+					if (catalinaBase != null)
+						deleteDir(catalinaBase);
+					if (catalinaHome != null)
+						deleteDir(catalinaHome);
 				} catch (IOException e) {
 					e.printStackTrace();
 				}
@@ -292,6 +439,16 @@ public class DeepfakeHttpServlet extends HttpServlet {
 	 */
 	@Override
 	public void destroy() {
+		if (cgiWorkerPools != null)
+			cgiWorkerPools.close();
+		if (parallelMatcher != null)
+			parallelMatcher.close();
+		if (collectAppender != null)
+			collectAppender.close();
+		if (consoleAppender != null)
+			consoleAppender.close();
+		if (accessLogAppender != null)
+			accessLogAppender.close();
 		logger.log(Level.INFO, "DeepfakeHTTP shutdown.");
 	}
 
@@ -360,19 +517,36 @@ public class DeepfakeHttpServlet extends HttpServlet {
 	 * @throws IOException
 	 */
 	private void doDbRequest(HttpServletRequest req, HttpServletResponse res) throws ServletException, IOException {
-		byte[] providedBodyBs = req.getInputStream().readAllBytes();
-		String providedBody   = new String(providedBodyBs, StandardCharsets.UTF_8);
-
 		/**
 		 * https://tomcat.apache.org/tomcat-9.0-doc/api/org/apache/catalina/Globals.html#ASYNC_SUPPORTED_ATTR
 		 */
 		req.setAttribute("org.apache.catalina.ASYNC_SUPPORTED", true);
 		AsyncContext asyncContext = req.startAsync(req, res);
 		asyncContext.setTimeout(0); // A timeout value of zero or less indicates no timeout. (https://docs.oracle.com/javaee/6/api/javax/servlet/AsyncContext.html#setTimeout(long))
+
+		AccessLogEvent accessLogEvent = null;
+		if (accessLogAppender != null || metrics != null) {
+			accessLogEvent           = new AccessLogEvent();
+			accessLogEvent.timestamp = System.currentTimeMillis();
+			accessLogEvent.method    = req.getMethod();
+			accessLogEvent.path      = req.getServletPath() + req.getPathInfo();
+		}
+		final AccessLogEvent finalAccessLogEvent = accessLogEvent;
+
+		if (metrics != null)
+			metrics.requestStarted();
+
 		asyncContext.addListener(new AsyncListener() {
 
 			@Override
 			public void onComplete(AsyncEvent ae) {
+				if (finalAccessLogEvent != null) {
+					finalAccessLogEvent.markCompleted(res.getStatus());
+					if (metrics != null)
+						metrics.requestCompleted(finalAccessLogEvent);
+					if (accessLogAppender != null)
+						accessLogAppender.append(finalAccessLogEvent);
+				}
 			}
 
 			@Override
@@ -402,9 +576,30 @@ public class DeepfakeHttpServlet extends HttpServlet {
 			}
 		});
 
+		if (req.getContentLengthLong() > maxBody) {
+			res.setStatus(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+			res.setHeader("Connection", "close");
+			res.setContentLength(0);
+			asyncContext.complete();
+			return;
+		}
+
+		/* read body without blocking container thread, process request when all data read */
+		ServletInputStream is = req.getInputStream();
+		is.setReadListener(new RequestBodyReader(logger, asyncContext, is, bodyBufferPool, bodyBuffer, maxBody, requestBody -> processRequest(asyncContext, requestBody, finalAccessLogEvent)));
+	}
+
+	/**
+	 * 
+	 * @param asyncContext
+	 * @param requestBody
+	 * @param accessLogEvent - null if access log and metrics are disabled
+	 */
+	private void processRequest(AsyncContext asyncContext, RequestBody requestBody, AccessLogEvent accessLogEvent) {
 		asyncContext.start(new Runnable() {
 
 			private boolean connectionKeepAlive;
+			private boolean asyncWrite; // async context is completed by response body writer
 
 			@Override
 			public void run() {
@@ -413,32 +608,32 @@ public class DeepfakeHttpServlet extends HttpServlet {
 
 				ReqResp reqResp = null;
 				try {
-					String method       = request.getMethod().trim().toUpperCase(Locale.ENGLISH);
-					String providedPath = request.getServletPath() + request.getPathInfo();
+					if (accessLogEvent != null)
+						accessLogEvent.markStarted();
+
+					RequestContext ctx          = new RequestContext(request, requestBody, X_SERVER_VALUE);
+					String         method       = ctx.getMethod();
+					String         providedPath = ctx.getPath();
 
 					if (providedPath.equals(openApiPath) || providedPath.startsWith(openApiPath + '/')) {
 						providedPath = providedPath.substring(openApiPath.length());
 						hostOpenApiUi(asyncContext, response, providedPath);
+						asyncWrite = true;
 						return;
 					} else if (providedPath.equals(dbPath) || providedPath.startsWith(dbPath + '/')) {
 						hostDb(asyncContext, response);
+						asyncWrite = true;
+						return;
+					} else if (metricsPath != null && providedPath.equals(metricsPath)) {
+						hostMetrics(asyncContext, response, ctx.getQueryString());
+						asyncWrite = true;
 						return;
 					}
 
-					String providedQueryString = request.getQueryString();
-					if (providedQueryString == null)
-						providedQueryString = "";
-					String protocol = request.getProtocol();
-
-					int                 port    = req.getServerPort();
-					Enumeration<String> headers = req.getHeaderNames();
+					String providedQueryString  = ctx.getQueryString();
+					String providedFirstLineStr = ctx.getFirstLine();
 
-					String providedFirstLineStr = method + ' ' + providedPath + (providedQueryString.isEmpty() ? "" : "?" + providedQueryString) + ' ' + protocol;
-
-					//					byte[] providedBodyBs = request.getInputStream().readAllBytes();
-					//					String providedBody   = new String(providedBodyBs, StandardCharsets.UTF_8);
-
-					Map<String, List<String>> providedParams = new LinkedHashMap<>();
+					Map<String, List<String>> providedParams = ctx.getParameters();
 
 					String cgi           = null;
 					String xgi           = null;
@@ -448,54 +643,56 @@ public class DeepfakeHttpServlet extends HttpServlet {
 					String requestContentSource  = null;
 					String responseContentSource = null;
 
-					int requestDelay  = 0;
-					int responseDelay = 0;
-
-					boolean jsonRequest = false;
-
-					String requestHeaderContentType = request.getHeader(HTTP_HEADER_CONTENT_TYPE);
+					int     requestDelay   = 0;
+					int     responseDelay  = 0;
+					Integer handlerTimeout = null;
 
-					if (requestHeaderContentType != null && requestHeaderContentType.startsWith("application/x-www-form-urlencoded"))
-						MatchUtils.parseQuery(providedBody, providedParams);
-					if (requestHeaderContentType != null && requestHeaderContentType.startsWith("application/json"))
-						jsonRequest = true;
-
-					Map<String, List<String>> providedHeaderValuesMap = new LinkedHashMap<>();
-					extractRequestHeaders(request, providedHeaderValuesMap);
-					Map<String, String> env       = createEnvMap(request);
-					byte[]              requestBs = extracRequestBytes(request, providedBodyBs, providedHeaderValuesMap);
+					boolean jsonRequest = ctx.isJsonRequest();
 
 					/* search for request-reponse pair */
-					for (ReqResp rr : allReqResps) {
-
-						ReqResp crr = cloneReqResp(rr);
-
-						FirstLineReq firstLineReq = new FirstLineReq(crr.request.firstLine);
-						boolean      protocolOk   = firstLineReq.getProtocol().equals(ParseDumpUtils.HTTP_1_1);
-						boolean      methodOk     = firstLineReq.getMethod().equals(method);
-						String       templatePath = HttpPathUtils.extractPathFromUri(firstLineReq.getUri());
-
-						boolean pathOk = MatchUtils.matchPath(templatePath, providedPath, providedParams);
+					MatchEvent matchEvent = new MatchEvent();
+					matchEvent.begin();
+					RouteTable                table         = routeTable;
+					List<ReqResp>             reqResps      = table.reqResps;
+					CompiledRoute[]           compiled      = table.routes;
+					RouteMetrics[]            routes        = metrics == null ? null : metrics.getRoutes(reqResps);
+					MatchCache.Key            cacheKey      = table.cache == null ? null : table.cache.fingerprint(ctx, method, providedPath);
+					int                       cached        = cacheKey == null ? -1 : table.cache.get(cacheKey);
+					int[]                     indexes       = cached == -1 ? table.index.candidates(ctx, method, providedPath) : new int[] { cached };
+					int                       candidates    = 0;
+					int                       matched       = -1;
+					boolean                   cacheable     = true; // all evaluated entries are matched without runtime body source
+					Map<String, List<String>> initialParams = copyParams(providedParams);
+					if (parallelMatcher != null && cached == -1 && indexes.length >= ParallelMatcher.MIN_CANDIDATES && ctx.getRequestBody().getLength() >= ParallelMatcher.MIN_BODY)
+						indexes = parallelMatcher.filter(compiled, indexes, ctx, method, providedPath, strictJson); // drop candidates that cannot match
+					for (int c = 0; c < indexes.length; c++) {
+						int           i     = indexes[c];
+						CompiledRoute route = compiled[i];
+						candidates++;
+						matched   = i;
+						cacheable = cacheable && !route.bodyFromSource;
 
-						String templateQueryString = HttpPathUtils.extractQueryStringFromUri(firstLineReq.getUri());
-
-						boolean queryStringOk = MatchUtils.matchQuery(!noWildcard, templateQueryString, providedQueryString, providedParams);
 						if ( //
-						protocolOk && //
-						methodOk && //
-						pathOk && //
-						queryStringOk //
+						route.protocolOk && //
+						route.method.equals(method) && //
+						MatchUtils.matchPath(route.path, providedPath, providedParams) && //
+						route.query.match(providedQueryString, ctx.getQueryMap(), providedParams) && //
+						route.matchHeaders(ctx.getHeaderValuesMap()) //
 						) {
-							Map<String, Object> tmpDataMap = new LinkedHashMap<>();
-							Map<String, Object> requestMap = new LinkedHashMap<>();
-							requestMap.put("parameters", providedParams);
-							requestMap.put("method", method);
-							requestMap.put("path", providedPath);
-							requestMap.put("query", providedQueryString);
-							requestMap.put("headers", providedHeaderValuesMap);
-							requestMap.put("body", providedBody);
-							tmpDataMap.put("request", requestMap);
-							tmpDataMap.put("data", dataMap);
+							ReqResp crr = cloneReqResp(reqResps.get(i));
+
+							/* handler headers of a previous candidate that failed body matching must not leak */
+							cgi                   = null;
+							xgi                   = null;
+							jsFunc                = null;
+							forwardOrigin         = null;
+							requestContentSource  = null;
+							responseContentSource = null;
+							requestDelay          = 0;
+							responseDelay         = 0;
+							handlerTimeout        = null;
+
+							Map<String, Object> tmpDataMap = ctx.getTemplateDataMap(dataMap);
 
 							/* Before we can use headers information, we need process header templates */
 							processRespHeaders(!noTemplate, crr, tmpDataMap);
@@ -524,109 +721,98 @@ public class DeepfakeHttpServlet extends HttpServlet {
 									forwardOrigin = header.value;
 								else if (INTERNAL_HTTP_HEADER_X_SERVER_HANDLER_JS.toLowerCase(Locale.ENGLISH).equals(lowerCaseHeaderName))
 									jsFunc = header.value;
+								else if (INTERNAL_HTTP_HEADER_X_SERVER_HANDLER_TIMEOUT.toLowerCase(Locale.ENGLISH).equals(lowerCaseHeaderName))
+									handlerTimeout = Integer.parseInt(header.value);
 							}
 
 							processRespBody(!noTemplate, crr, tmpDataMap);
 
-							/* headers from file */
-							Map<String, List<String>> headerValuesMap = new LinkedHashMap<>();
-							for (String headerStr : crr.request.headers) {
-								Header header              = new Header(headerStr);
-								String lowerCaseHeaderName = header.name.toLowerCase(Locale.ENGLISH);
-								// ignore internal headers
-								if (INTERNAL_HTTP_HEADER_X_OPENAPI_DESCRIPTION.toLowerCase(Locale.ENGLISH).equals(lowerCaseHeaderName))
-									continue;
-								if (INTERNAL_HTTP_HEADER_X_OPENAPI_SUMMARY.toLowerCase(Locale.ENGLISH).equals(lowerCaseHeaderName))
-									continue;
-								if (INTERNAL_HTTP_HEADER_X_OPENAPI_TAGS.toLowerCase(Locale.ENGLISH).equals(lowerCaseHeaderName))
-									continue;
-								if (INTERNAL_HTTP_HEADER_X_OPENAPI_PARAMETERS.toLowerCase(Locale.ENGLISH).equals(lowerCaseHeaderName))
-									continue;
-								if (INTERNAL_HTTP_HEADER_X_SERVER_DELAY.toLowerCase(Locale.ENGLISH).equals(lowerCaseHeaderName))
-									continue;
-								if (INTERNAL_HTTP_HEADER_X_SERVER_CONTENT_SOURCE.toLowerCase(Locale.ENGLISH).equals(lowerCaseHeaderName))
-									continue;
-
-								List<String> headerValuesList = headerValuesMap.get(lowerCaseHeaderName);
-								if (headerValuesList == null) {
-									headerValuesList = new ArrayList<>();
-									headerValuesMap.put(lowerCaseHeaderName, headerValuesList);
-								}
-
-								String[] headerValues = header.value.split(",");
-								for (String headerValue : headerValues) {
-									headerValue = headerValue.trim();
-									if (!headerValue.isEmpty())
-										headerValuesList.add(headerValue);
-								}
+							String       templateBody;
+							QueryMatcher templateBodyQuery;
+							JsonNode     templateBodyJson;
+							long         templateBodyJsonHash;
+							if (requestContentSource == null) {
+								templateBody         = route.body;
+								templateBodyQuery    = route.bodyQuery;
+								templateBodyJson     = route.bodyJson;
+								templateBodyJsonHash = route.bodyJsonHash;
+							} else {
+								byte[] bs;
+								if (responseContentSource.startsWith(IProtocol.FILE) || responseContentSource.startsWith(IProtocol.HTTP) || responseContentSource.startsWith(IProtocol.HTTPS)) {
+									String[] contentTypeArr = new String[1];
+									bs = UrlUtils.getUrlContent(responseContentSource, contentTypeArr);
+								} else if (responseContentSource.startsWith(IProtocol.DATA)) {
+									String[] contentTypeArr = new String[1];
+									bs = UrlUtils.getDataUrlContent(responseContentSource, contentTypeArr);
+								} else
+									throw new IllegalArgumentException(MessageFormat.format("Bad {0} value: {1}", INTERNAL_HTTP_HEADER_X_SERVER_CONTENT_SOURCE, responseContentSource));
+								templateBody         = new String(bs, StandardCharsets.UTF_8);
+								templateBodyQuery    = templateBody.isEmpty() ? null : new QueryMatcher(!noWildcard, templateBody);
+								templateBodyJson     = templateBody.isEmpty() ? null : CompiledRoute.parseJson(templateBody);
+								templateBodyJsonHash = templateBodyJson == null ? 0 : JsonHash.hash(templateBodyJson);
 							}
-
-							boolean ok = true;
-							/* match headers */
-							for (Map.Entry<String, List<String>> entry : headerValuesMap.entrySet()) {
-								String       name           = entry.getKey();
-								List<String> values         = entry.getValue();
-								List<String> providedValues = providedHeaderValuesMap.get(name);
-								for (String value : values) {
-									if (providedValues == null)
-										ok = false;
-									else
-										ok = MatchUtils.matchHeaderValue(!noWildcard, value, providedValues);
-									if (!ok)
-										break;
+							if (templateBody.isEmpty()) {
+								reqResp = crr;
+								break;
+							} else {
+								String providedBody = ctx.getStrippedBody();
+								if (jsonRequest && !strictJson && templateBodyJson != null) {
+									/* different canonical hashes prove inequality, no tree comparison needed */
+									Long providedJsonHash = ctx.getJsonBodyHash();
+									if (providedJsonHash == null || providedJsonHash == templateBodyJsonHash) {
+										JsonNode providedJson = ctx.getJsonBody();
+										if (providedJson != null && providedJson.equals(templateBodyJson)) {
+											reqResp = crr;
+											break;
+										}
+									}
 								}
-								if (!ok)
+								if (!ctx.isFormRequest() && templateBody.equals(providedBody)) {
+									reqResp = crr;
 									break;
-							}
-							if (ok) {
-								String templateBody;
-								if (requestContentSource == null)
-									templateBody = crr.request.body.toString().strip();
-								else {
-									byte[] bs;
-									if (responseContentSource.startsWith(IProtocol.FILE) || responseContentSource.startsWith(IProtocol.HTTP) || responseContentSource.startsWith(IProtocol.HTTPS)) {
-										String[] contentTypeArr = new String[1];
-										bs = UrlUtils.getUrlContent(responseContentSource, contentTypeArr);
-									} else if (responseContentSource.startsWith(IProtocol.DATA)) {
-										String[] contentTypeArr = new String[1];
-										bs = UrlUtils.getDataUrlContent(responseContentSource, contentTypeArr);
-									} else
-										throw new IllegalArgumentException(MessageFormat.format("Bad {0} value: {1}", INTERNAL_HTTP_HEADER_X_SERVER_CONTENT_SOURCE, responseContentSource));
-									templateBody = new String(bs, StandardCharsets.UTF_8);
 								}
-								if (templateBody.isEmpty()) {
+								if (templateBodyQuery.match(providedBody, ctx.getBodyQueryMap(), providedParams)) {
 									reqResp = crr;
 									break;
-								} else {
-									boolean jsonContent = requestHeaderContentType != null && requestHeaderContentType.startsWith("application/json");
-									if (jsonContent && !strictJson) {
-										ObjectMapper om = new ObjectMapper();
-										if (om.readTree(templateBody).equals(om.readTree(providedBody.strip()))) {
-											reqResp = crr;
-											break;
-										}
-									}
-									if (requestHeaderContentType != null && requestHeaderContentType.startsWith("application/x-www-form-urlencoded")) {
-										if (MatchUtils.matchQuery(!noWildcard, templateBody, providedBody.strip(), providedParams)) {
-											reqResp = crr;
-											break;
-										}
-									} else {
-										if (templateBody.equals(providedBody.strip())) {
-											reqResp = crr;
-											break;
-										}
-									}
-
-									if (MatchUtils.matchQuery(!noWildcard, templateBody, providedBody.strip(), providedParams)) {
-										//if (templateBody.equals(providedBody.strip())) {
-										reqResp = crr;
-										break;
-									}
 								}
 							}
 						}
+						if (routes != null)
+							routes[i].misses.increment();
+						matched = -1;
+
+						/* parameters collected by an entry that did not match must not leak */
+						restoreParams(providedParams, initialParams);
+
+						if (cached != -1) { // cached entry does not match (fingerprint collision), full search
+							cached  = -1;
+							indexes = table.index.candidates(ctx, method, providedPath);
+							c       = -1;
+						}
+					}
+					if (matched != -1)
+						table.index.hit(matched);
+					if (cacheKey != null && cached == -1 && matched != -1 && cacheable)
+						table.cache.put(cacheKey, matched);
+					matchEvent.end();
+					if (matchEvent.shouldCommit()) {
+						matchEvent.method     = method;
+						matchEvent.path       = providedPath;
+						matchEvent.candidates = candidates;
+						matchEvent.cacheHit   = cached != -1;
+						matchEvent.route      = reqResp == null ? null : routeId(reqResp);
+						matchEvent.commit();
+					}
+
+					if (accessLogEvent != null) {
+						accessLogEvent.markMatched();
+						if (reqResp != null) {
+							accessLogEvent.dumpFile   = reqResp.dumpFile;
+							accessLogEvent.lineNumber = reqResp.request.lineNumber;
+						}
 					}
+					if (metrics != null && reqResp == null)
+						metrics.unmatched.increment();
 
 					Map<String, String> responseHeaders = new LinkedHashMap<>();
 					if (reqResp == null) { // request-reponse pair not found
@@ -635,7 +821,7 @@ public class DeepfakeHttpServlet extends HttpServlet {
 						reqResp.response.firstLine = ParseDumpUtils.HTTP_1_1 + ' ' + badRequestStatus;
 					}
 
-					String responseBbody = reqResp.response.body.toString();
+					Body responseBbody = reqResp.response.body;
 
 					String        responseFirstLineStr = reqResp.response.firstLine;
 					FirstLineResp firstLineResp        = new FirstLineResp(responseFirstLineStr);
@@ -644,18 +830,9 @@ public class DeepfakeHttpServlet extends HttpServlet {
 
 					MatchUtils.parseQuery(providedQueryString, providedParams);
 
-					Map<String, Object> tmpDataMap = new LinkedHashMap<>();
-					Map<String, Object> requestMap = new LinkedHashMap<>();
-					requestMap.put("parameters", providedParams);
-					requestMap.put("method", method);
-					requestMap.put("path", providedPath);
-					requestMap.put("query", providedQueryString);
-					requestMap.put("headers", providedHeaderValuesMap);
-					requestMap.put("body", providedBody);
-					tmpDataMap.put("request", requestMap);
-					tmpDataMap.put("data", dataMap);
-
-					byte[] bs          = new byte[0];
+					Map<String, Object> tmpDataMap = ctx.getTemplateDataMap(dataMap);
+
+					Body   body        = Body.EMPTY;
 					String contentType = null;
 
 					for (String headerStr : reqResp.response.headers) {
@@ -674,6 +851,8 @@ public class DeepfakeHttpServlet extends HttpServlet {
 							continue;
 						else if (INTERNAL_HTTP_HEADER_X_SERVER_HANDLER_JS.toLowerCase(Locale.ENGLISH).equals(lowerCaseHeaderName))
 							continue;
+						else if (INTERNAL_HTTP_HEADER_X_SERVER_HANDLER_TIMEOUT.toLowerCase(Locale.ENGLISH).equals(lowerCaseHeaderName))
+							continue;
 
 						responseHeaders.put(header.name, header.value);
 					}
@@ -709,62 +888,67 @@ public class DeepfakeHttpServlet extends HttpServlet {
 						if (responseContentSource != null) {
 							if (responseContentSource.startsWith(IProtocol.FILE) || responseContentSource.startsWith(IProtocol.HTTP) || responseContentSource.startsWith(IProtocol.HTTPS)) {
 								String[] contentTypeArr = new String[1];
-								bs = UrlUtils.getUrlContent(responseContentSource, contentTypeArr);
+								body = Body.wrap(UrlUtils.getUrlContent(responseContentSource, contentTypeArr));
 								if (contentType == null)
 									contentType = contentTypeArr[0];
 							} else if (responseContentSource.startsWith(IProtocol.DATA)) {
 								String[] contentTypeArr = new String[1];
-								bs = UrlUtils.getDataUrlContent(responseContentSource, contentTypeArr);
+								body = Body.wrap(UrlUtils.getDataUrlContent(responseContentSource, contentTypeArr));
 								if (contentType == null)
 									contentType = contentTypeArr[0];
 							} else
 								throw new IllegalArgumentException(MessageFormat.format("Bad {0} value: {1}", INTERNAL_HTTP_HEADER_X_SERVER_CONTENT_SOURCE, responseContentSource));
-						} else if (xgi != null) {
-							byte[]        outBs            = runProgram(xgi, env, requestBs);
-							String        outStr           = new String(outBs, StandardCharsets.UTF_8);
-							int           pos              = outStr.indexOf('\n');
-							String        firstLineRespStr = outStr.substring(0, pos).strip();
-							FirstLineResp firstLineRespCgi = new FirstLineResp(firstLineRespStr);
-							if (status == 0) {
-								status  = firstLineRespCgi.getStatus();
-								message = firstLineRespCgi.getMessage();
-							}
-							String   headersAndBodyStr = outStr.substring(pos + 1);
-							int      pos2              = headersAndBodyStr.indexOf("\n\n");
-							String   headersStr        = headersAndBodyStr.substring(0, pos2);
-							String[] headersArr        = headersStr.split("\\n");
-							for (String headerStr : headersArr) {
-								Header header = new Header(headerStr);
-								if (!responseHeaders.containsKey(header.name))
-									responseHeaders.put(header.name, header.value);
-							}
-							if (!responseBbody.isEmpty())
-								bs = responseBbody.getBytes(StandardCharsets.UTF_8);
-							else {
-								bs = new byte[outBs.length - (pos + pos2 + 2)];
-								System.arraycopy(outBs, pos + pos2 + 2, bs, 0, bs.length);
-							}
-						} else if (cgi != null) {
-							byte[]   outBs             = runProgram(xgi, env, providedBodyBs);
-							String   headersAndBodyStr = new String(outBs, StandardCharsets.UTF_8);
-							int      pos2              = headersAndBodyStr.indexOf("\n\n");
-							String   headersStr        = headersAndBodyStr.substring(0, pos2);
-							String[] headersArr        = headersStr.split("\\n");
-							for (String headerStr : headersArr) {
-								Header header = new Header(headerStr);
-								if (!responseHeaders.containsKey(header.name))
-									responseHeaders.put(header.name, header.value);
+						} else if (xgi != null || cgi != null) {
+							boolean             xgiHandler = xgi != null;
+							String              prog       = xgiHandler ? xgi : cgi;
+							InputStream         stdinIs    = xgiHandler ? ctx.openRawRequestStream() : requestBody.openStream();
+							long                timeout    = handlerTimeout == null ? cgiTimeout : handlerTimeout;
+							int                 maxCapture = collectFile != null ? Integer.MAX_VALUE : noLog || noLogBody ? 0 : maxLogBody;
+							CgiResponseStreamer streamer   = new CgiResponseStreamer(response, status, message, responseHeaders, !responseBbody.isEmpty(), responseDelay, contentType, maxCapture);
+							CgiEvent            cgiEvent   = new CgiEvent();
+							long                startNanos = System.nanoTime();
+							cgiEvent.begin();
+							if (cgiWorkerPools == null)
+								CgiRunner.run(logger, prog, ctx.getEnv(), stdinIs, xgiHandler, timeout, cgiMaxOutput, streamer);
+							else
+								CgiRunner.run(cgiWorkerPools.getPool(prog), ctx.getEnv(), stdinIs, xgiHandler, timeout, cgiMaxOutput, streamer);
+							cgiEvent.end();
+							recordHandlerTime(metrics == null ? null : metrics.cgiHandler, accessLogEvent, startNanos);
+							if (cgiEvent.shouldCommit()) {
+								cgiEvent.program  = prog;
+								cgiEvent.route    = routeId(reqResp);
+								cgiEvent.xgi      = xgiHandler;
+								cgiEvent.pooled   = cgiWorkerPools != null;
+								cgiEvent.streamed = streamer.isStreamed();
+								cgiEvent.status   = streamer.getStatus();
+								cgiEvent.bytes    = streamer.getBytesSent();
+								cgiEvent.commit();
 							}
-							if (!responseBbody.isEmpty())
-								bs = responseBbody.getBytes(StandardCharsets.UTF_8);
-							else {
-								bs = new byte[outBs.length - (pos2 + 2)];
-								System.arraycopy(outBs, pos2 + 2, bs, 0, bs.length);
+							status  = streamer.getStatus();
+							message = streamer.getMessage();
+							if (streamer.isStreamed()) { // status, headers and body already sent
+								markHandled(accessLogEvent, streamer.getBytesSent());
+								if (collectFile != null)
+									logReqRespToFile(request, providedFirstLineStr, ctx.getBodyBytes(), streamer.getCapturedBody(), status, message, responseHeaders);
+								if (!noLog && consoleAppender.accept()) // sampling and rate limit before capture
+									logReqRespToConsole(request, providedFirstLineStr, requestBody, Body.wrap(streamer.getCapturedBody()), status, message, responseHeaders);
+								return;
 							}
+							body = responseBbody;
 						} else if (jsFunc != null) {
 							String oldDataJson = dataJson;
 							/* update data */
+							JsHandlerEvent jsEvent    = new JsHandlerEvent();
+							long           startNanos = System.nanoTime();
+							jsEvent.begin();
 							List<String> lst = TemplateUtils.processData(scope, jsFunc, tmpDataMap, jsonRequest);
+							jsEvent.end();
+							recordHandlerTime(metrics == null ? null : metrics.jsHandler, accessLogEvent, startNanos);
+							if (jsEvent.shouldCommit()) {
+								jsEvent.function = jsFunc;
+								jsEvent.route    = routeId(reqResp);
+								jsEvent.commit();
+							}
 							dataJson     = lst.get(0);
 							dataJsonNode = JacksonUtils.parseJsonYamlToMap(dataJson);
 							dataMap      = new ObjectMapper().treeToValue(dataJsonNode, Object.class);
@@ -789,24 +973,34 @@ public class DeepfakeHttpServlet extends HttpServlet {
 							}
 							if (responseBbody.isEmpty())
 								if (bodyFromJs != null)
-									bs = bodyFromJs.getBytes(StandardCharsets.UTF_8);
+									body = Body.of(bodyFromJs);
 								else
-									bs = new byte[0];
-							else {
-								responseBbody = TemplateUtils.processTemplate(scope, responseBbody, tmpDataMap);
-								bs            = responseBbody.getBytes(StandardCharsets.UTF_8);
-							}
+									body = Body.EMPTY;
+							else
+								body = processTemplate(responseBbody, tmpDataMap);
 						} else if (forwardOrigin != null) {
-							int[] statusArr = new int[1];
-							bs = forwardRequest(tmpDataMap, forwardOrigin, providedPath, providedQueryString, providedHeaderValuesMap, providedBodyBs, responseHeaders, statusArr);
+							int[]        statusArr    = new int[1];
+							ForwardEvent forwardEvent = new ForwardEvent();
+							long         startNanos   = System.nanoTime();
+							forwardEvent.begin();
+							body = forwardRequest(tmpDataMap, forwardOrigin, providedPath, providedQueryString, ctx.getHeaderValuesMap(), ctx.getBodyBytes(), responseHeaders, statusArr);
+							forwardEvent.end();
+							recordHandlerTime(metrics == null ? null : metrics.forward, accessLogEvent, startNanos);
+							if (forwardEvent.shouldCommit()) {
+								forwardEvent.url    = forwardOrigin + providedPath;
+								forwardEvent.route  = routeId(reqResp);
+								forwardEvent.status = statusArr[0];
+								forwardEvent.bytes  = body.size();
+								forwardEvent.commit();
+							}
 							if (status == 0)
 								status = statusArr[0];
 						} else
-							bs = responseBbody.getBytes(StandardCharsets.UTF_8);
+							body = responseBbody; // stored bytes, no transcoding
 					} else {
 						if (dir != null) {
 							int[] statusArr = new int[1];
-							bs     = forwardRequestToDir(request, scope, env, tmpDataMap, requestBs, !noTemplate, responseHeaders, statusArr);
+							body   = forwardRequestToDir(request, scope, ctx, tmpDataMap, !noTemplate, responseHeaders, statusArr);
 							status = statusArr[0];
 						}
 					}
@@ -816,11 +1010,11 @@ public class DeepfakeHttpServlet extends HttpServlet {
 					if (contentType != null)
 						responseHeaders.put(HTTP_HEADER_CONTENT_TYPE, contentType);
 					if (!responseHeaders.containsKey(HTTP_HEADER_CONTENT_LENGTH))
-						responseHeaders.put(HTTP_HEADER_CONTENT_LENGTH, Integer.toString(bs.length));
+						responseHeaders.put(HTTP_HEADER_CONTENT_LENGTH, Integer.toString(body.size()));
 
 					if (!noEtag) {
 						if (status != badRequestStatus) {
-							String etag = "\"" + Integer.toHexString(Murmur3.hash32(bs)) + "\""; // Murmur3 32-bit variant
+							String etag = "\"" + Integer.toHexString(body.hash32()) + "\""; // Murmur3 32-bit variant
 
 							String  etagFromClient = request.getHeader(HTTP_HEADER_IF_NONE_MATCH);
 							boolean etagMatched    = etag.equals(etagFromClient);
@@ -840,19 +1034,24 @@ public class DeepfakeHttpServlet extends HttpServlet {
 						response.setHeader(entry.getKey(), entry.getValue());
 
 					if (collectFile != null)
-						logReqRespToFile(request, providedFirstLineStr, providedBodyBs, bs, status, message, responseHeaders);
-					if (!noLog)
-						logReqRespToConsole(request, providedFirstLineStr, providedBodyBs, bs, status, message, responseHeaders, !noColor, !nologRequestInfo, !noLogHeaders, !noLogBody, maxLogBody);
+						logReqRespToFile(request, providedFirstLineStr, ctx.getBodyBytes(), body.toByteArray(), status, message, responseHeaders);
+					if (!noLog && consoleAppender.accept()) // sampling and rate limit before capture
+						logReqRespToConsole(request, providedFirstLineStr, requestBody, body, status, message, responseHeaders);
 
-					OutputStream responseOutputStream = response.getOutputStream();
-					responseOutputStream.write(bs);
-					responseOutputStream.flush();
+					markHandled(accessLogEvent, body.size());
+					ResponseBodyWriter.write(logger, asyncContext, body.buffer(), !connectionKeepAlive);
+					asyncWrite = true;
 				} catch (Throwable e) {
 					e.printStackTrace();
 					String       message = MessageFormat.format("Error while generating response body. Dump file: {0}. Line number: {1}. Message: {2}", reqResp.dumpFile, reqResp.response.lineNumber, e.getMessage());
 					OutputStream responseOutputStream;
 					try {
-						response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, message); // TODO
+						if (response.isCommitted()) // e.g. CGI program failed while its body was streamed
+							return;
+						if (e instanceof CgiTimeoutException)
+							response.setStatus(HttpServletResponse.SC_GATEWAY_TIMEOUT); // message is sent in the body
+						else
+							response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, message); // TODO
 						responseOutputStream = response.getOutputStream();
 						responseOutputStream.write(message.getBytes(StandardCharsets.UTF_8));
 						responseOutputStream.flush();
@@ -860,7 +1059,8 @@ public class DeepfakeHttpServlet extends HttpServlet {
 						e1.printStackTrace();
 					}
 				} finally {
-					if (!connectionKeepAlive)
+					requestBody.delete();
+					if (!connectionKeepAlive && !asyncWrite)
 						try {
 							asyncContext.complete();
 						} catch (IllegalStateException e2) {
@@ -872,27 +1072,39 @@ public class DeepfakeHttpServlet extends HttpServlet {
 
 	}
 
-	private static void extractRequestHeaders(HttpServletRequest request, Map<String, List<String>> providedHeaderValuesMap) {
-		/* provided headers */
-		for (Enumeration<String> e = request.getHeaderNames(); e.hasMoreElements();) {
-			String       headerName       = e.nextElement().toLowerCase(Locale.ENGLISH);
-			List<String> headerValuesList = providedHeaderValuesMap.get(headerName);
-			if (headerValuesList == null) {
-				headerValuesList = new ArrayList<>();
-				providedHeaderValuesMap.put(headerName, headerValuesList);
-			}
+	/**
+	 * Response is ready for writing
+	 *
+	 * @param accessLogEvent - null if access log and metrics are disabled
+	 * @param bytes
+	 */
+	private void markHandled(AccessLogEvent accessLogEvent, long bytes) {
+		if (accessLogEvent == null)
+			return;
+		accessLogEvent.markHandled(bytes);
+		if (metrics != null)
+			metrics.writeStarted();
+	}
 
-			for (Enumeration<String> e1 = request.getHeaders(headerName); e1.hasMoreElements();) {
-				String headerValue = e1.nextElement();
-				headerValue = headerValue.trim();
-				String[] headerValues = headerValue.split(",");
-				for (String value : headerValues) {
-					value = value.trim();
-					if (!value.isEmpty())
-						headerValuesList.add(value);
-				}
-			}
-		}
+	/**
+	 * @param reqResp
+	 * @return dump file and request line number
+	 */
+	private static String routeId(ReqResp reqResp) {
+		return reqResp.dumpFile + ':' + reqResp.request.lineNumber;
+	}
+
+	/**
+	 * @param histogram      - null if metrics are disabled
+	 * @param accessLogEvent - null if access log and metrics are disabled
+	 * @param startNanos     - handler start
+	 */
+	private static void recordHandlerTime(Histogram histogram, AccessLogEvent accessLogEvent, long startNanos) {
+		long nanos = System.nanoTime() - startNanos;
+		if (histogram != null)
+			histogram.record(nanos);
+		if (accessLogEvent != null)
+			accessLogEvent.handlerNanos += nanos;
 	}
 
 	private void logReqRespToFile(HttpServletRequest request, String providedFirstLineStr, byte[] providedBodyBs, byte[] bs, int status, String message, Map<String, String> responseHeaders) throws IOException {
@@ -903,7 +1115,7 @@ public class DeepfakeHttpServlet extends HttpServlet {
 			/* provided headers */
 			for (Enumeration<String> headerNames = request.getHeaderNames(); headerNames.hasMoreElements();) {
 				String headerName = headerNames.nextElement();
-				baos.write(processHeaderName(headerName).getBytes(StandardCharsets.UTF_8));
+				baos.write(HeaderUtils.processHeaderName(headerName).getBytes(StandardCharsets.UTF_8));
 				baos.write(':');
 				baos.write(' ');
 				boolean first = true;
@@ -928,7 +1140,7 @@ public class DeepfakeHttpServlet extends HttpServlet {
 			baos.write('\n');
 			/* provided headers */
 			for (Map.Entry<String, String> entry : responseHeaders.entrySet()) {
-				String headerStr = processHeaderName(entry.getKey()) + ": " + entry.getValue();
+				String headerStr = HeaderUtils.processHeaderName(entry.getKey()) + ": " + entry.getValue();
 				baos.write(headerStr.getBytes(StandardCharsets.UTF_8));
 				baos.write('\n');
 			}
@@ -941,138 +1153,81 @@ public class DeepfakeHttpServlet extends HttpServlet {
 			baos.flush();
 			logBs = baos.toByteArray();
 		}
-		Files.write(new File(collectFile).toPath(), logBs, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		collectAppender.append(logBs);
 	}
 
-	private void logReqRespToConsole(HttpServletRequest request, String providedFirstLineStr, byte[] providedBodyBs, byte[] bs, int status, String message, Map<String, String> responseHeaders, boolean color, boolean logRequestInfo, boolean logHeaders, boolean logBody, int maxLogBody) throws IOException {
-		byte[] logBs = null;
-		try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-			String firstLineColor = IAnsi.CYAN_BOLD_BRIGHT;
-			String headersColor   = IAnsi.CYAN;
-			String contentColor   = IAnsi.CYAN_BRIGHT;
-
-			StringBuilder reqSb = new StringBuilder();
-			if (color)
-				reqSb.append(IAnsi.RESET + IAnsi.BLACK_BRIGHT);
-			reqSb.append("================================================================================");
-			if (logRequestInfo) {
-				int           remotePort = request.getRemotePort();
-				ZonedDateTime zdt        = ZonedDateTime.now();
-				String        timestamp  = zdt.format(DateTimeFormatter.ISO_INSTANT);
-
-				String remoteAddr = request.getRemoteAddr();
-				String remoteHost = request.getRemoteHost();
-				String remoteUser = request.getRemoteUser();
-				if (remoteUser == null)
-					remoteUser = "";
-				if (color)
-					reqSb.append(IAnsi.RESET + IAnsi.BLACK_BOLD_BRIGHT);
-				reqSb.append("\n[" + timestamp + "]\n\n");
-				if (color)
-					reqSb.append(IAnsi.RESET + IAnsi.BLACK_BRIGHT);
-				reqSb.append("REMOTE_ADDR: " + remoteAddr + '\n');
-				reqSb.append("REMOTE_HOST: " + remoteHost + '\n');
-				reqSb.append("REMOTE_PORT: " + remotePort + '\n');
-				reqSb.append("REMOTE_USER: " + remoteUser + '\n');
-				reqSb.append("--------------------------------------------------------------------------------");
-			}
-			if (color)
-				reqSb.append(IAnsi.RESET + firstLineColor);
-			reqSb.append('\n');
-			reqSb.append(providedFirstLineStr);
-			reqSb.append('\n');
-			if (logHeaders) {
-				if (color)
-					reqSb.append(IAnsi.RESET + headersColor);
-				/* provided headers */
-				for (Enumeration<String> headerNames = request.getHeaderNames(); headerNames.hasMoreElements();) {
-					String headerName = headerNames.nextElement();
-					reqSb.append(processHeaderName(headerName) + ": ");
-					boolean first = true;
-					for (Enumeration<String> headerValues = request.getHeaders(headerName); headerValues.hasMoreElements();) {
-						String headerValue = headerValues.nextElement();
-						if (first)
-							first = false;
-						else
-							reqSb.append(';');
-						reqSb.append(headerValue);
-					}
-					reqSb.append('\n');
-				}
-			}
-			baos.write(reqSb.toString().getBytes(StandardCharsets.UTF_8));
-			if (logBody) {
-				if (color)
-					baos.write((IAnsi.RESET + contentColor).getBytes(StandardCharsets.UTF_8));
-				if (providedBodyBs.length != 0) {
-					baos.write('\n');
-					int len = providedBodyBs.length;
-					if (len > maxLogBody)
-						len = maxLogBody;
-					baos.write(providedBodyBs, 0, len);
-				}
-			}
-
-			if (status == badRequestStatus) {
-				firstLineColor = IAnsi.RED_BOLD_BRIGHT;
-				headersColor   = IAnsi.RED;
-				contentColor   = IAnsi.RED_BRIGHT;
-			} else {
-				firstLineColor = IAnsi.PURPLE_BOLD_BRIGHT;
-				headersColor   = IAnsi.PURPLE;
-				contentColor   = IAnsi.PURPLE_BRIGHT;
-			}
-
-			StringBuilder respSb = new StringBuilder();
-			if (color)
-				baos.write((IAnsi.RESET + IAnsi.BLACK_BRIGHT).getBytes(StandardCharsets.UTF_8));
-			respSb.append('\n');
-			respSb.append("--------------------------------------------------------------------------------");
-			respSb.append('\n');
-
-			if (color)
-				respSb.append(IAnsi.RESET + firstLineColor);
-			String firstLineRespStr = ParseDumpUtils.HTTP_1_1 + ' ' + Integer.toString(status) + (message == null ? "" : ' ' + message);
-			respSb.append(firstLineRespStr);
-			respSb.append('\n');
-			if (logHeaders) {
-				if (color)
-					respSb.append(IAnsi.RESET + headersColor);
-				/* provided headers */
-				for (Map.Entry<String, String> entry : responseHeaders.entrySet())
-					respSb.append(processHeaderName(entry.getKey()) + ": " + entry.getValue() + '\n');
+	/**
+	 * Called only for requests accepted by {@link ConsoleAppender#accept()}
+	 *
+	 * @param request
+	 * @param providedFirstLineStr
+	 * @param providedBody         - read only if bodies are logged, at most --max-log-body bytes
+	 * @param body                 - response body, copied only if bodies are logged, at most --max-log-body bytes
+	 * @param status
+	 * @param message
+	 * @param responseHeaders
+	 * @throws IOException
+	 */
+	private void logReqRespToConsole(HttpServletRequest request, String providedFirstLineStr, RequestBody providedBody, Body body, int status, String message, Map<String, String> responseHeaders) throws IOException {
+		AccessLogEvent event = new AccessLogEvent();
+		event.timestamp = System.currentTimeMillis();
+		if (!nologRequestInfo) {
+			event.remoteAddr = request.getRemoteAddr();
+			event.remoteHost = noLogDns ? event.remoteAddr : request.getRemoteHost();
+			event.remotePort = request.getRemotePort();
+			event.remoteUser = request.getRemoteUser();
+		}
+		event.firstLine = providedFirstLineStr;
+		if (!noLogHeaders) {
+			event.requestHeaders = new ArrayList<>();
+			for (Enumeration<String> headerNames = request.getHeaderNames(); headerNames.hasMoreElements();) {
+				String headerName = headerNames.nextElement();
+				event.requestHeaders.add(headerName);
+				event.requestHeaders.add(String.join(";", Collections.list(request.getHeaders(headerName))));
 			}
-			baos.write(respSb.toString().getBytes(StandardCharsets.UTF_8));
-			if (logBody) {
-				if (color)
-					baos.write((IAnsi.RESET + contentColor).getBytes(StandardCharsets.UTF_8));
-				if (bs.length != 0) {
-					baos.write('\n');
-					int len = bs.length;
-					if (len > maxLogBody)
-						len = maxLogBody;
-					baos.write(bs, 0, len);
+			event.responseHeaders = responseHeaders;
+		}
+		if (!noLogBody) {
+			if (!providedBody.isSpilled() && providedBody.getLength() <= maxLogBody)
+				event.requestBody = providedBody.getBytes();
+			else
+				try (InputStream is = providedBody.openStream()) { // spilled bodies are not loaded completely
+					event.requestBody = is.readNBytes(maxLogBody);
 				}
-			}
-			if (color)
-				baos.write(IAnsi.RESET.getBytes(StandardCharsets.UTF_8));
-
-			baos.flush();
-			logBs = baos.toByteArray();
+			event.responseBody = body.toByteArray(maxLogBody);
 		}
-
-		logger.log(Level.INFO, new String(logBs, StandardCharsets.UTF_8));
+		event.status  = status;
+		event.message = message;
+		consoleAppender.append(event);
 	}
 
 	private void hostDb(AsyncContext asyncContext, HttpServletResponse response) throws IOException {
 		if (dataJson != null) {
 			response.setContentType("application/json");
-			OutputStream responseOutputStream = response.getOutputStream();
-			String       outJson              = JacksonUtils.stringifyToJsonYaml(dataMap, JacksonUtils.FORMAT_JSON, true, false);
-			responseOutputStream.write(outJson.getBytes(StandardCharsets.UTF_8));
-			responseOutputStream.flush();
+			String outJson = JacksonUtils.stringifyToJsonYaml(dataMap, JacksonUtils.FORMAT_JSON, true, false);
+			ResponseBodyWriter.write(logger, asyncContext, ByteBuffer.wrap(outJson.getBytes(StandardCharsets.UTF_8)), true);
+		} else
+			asyncContext.complete();
+	}
+
+	/**
+	 * Serve metrics in Prometheus text format or JSON if requested with "format=json" query
+	 *
+	 * @param asyncContext
+	 * @param response
+	 * @param providedQueryString
+	 * @throws IOException
+	 */
+	private void hostMetrics(AsyncContext asyncContext, HttpServletResponse response, String providedQueryString) throws IOException {
+		String out;
+		if ("format=json".equals(providedQueryString)) {
+			response.setContentType("application/json");
+			out = JacksonUtils.stringifyToJsonYaml(metrics.toMap(), JacksonUtils.FORMAT_JSON, true, false);
+		} else {
+			response.setContentType("text/plain; version=0.0.4; charset=utf-8");
+			out = metrics.toPrometheus();
 		}
-		asyncContext.complete();
+		ResponseBodyWriter.write(logger, asyncContext, ByteBuffer.wrap(out.getBytes(StandardCharsets.UTF_8)), true);
 	}
 
 	private void hostOpenApiUi(AsyncContext asyncContext, HttpServletResponse response, String providedPath) throws IOException {
@@ -1110,12 +1265,10 @@ public class DeepfakeHttpServlet extends HttpServlet {
 		}
 		if (mime != null)
 			response.setContentType(mime);
-		if (bs != null) {
-			OutputStream responseOutputStream = response.getOutputStream();
-			responseOutputStream.write(bs);
-			responseOutputStream.flush();
-		}
-		asyncContext.complete();
+		if (bs != null)
+			ResponseBodyWriter.write(logger, asyncContext, ByteBuffer.wrap(bs), true);
+		else
+			asyncContext.complete();
 	}
 
 	/**
@@ -1124,6 +1277,10 @@ public class DeepfakeHttpServlet extends HttpServlet {
 	 * @throws Throwable
 	 */
 	private void reload(boolean activateDirWatchers) throws Throwable {
+		long        startNanos  = System.nanoTime();
+		ReloadEvent reloadEvent = new ReloadEvent();
+		reloadEvent.begin();
+
 		Context ctx = Context.enter();
 		ctx.setLanguageVersion(Context.VERSION_1_8);
 		ctx.setOptimizationLevel(9);
@@ -1151,17 +1308,55 @@ public class DeepfakeHttpServlet extends HttpServlet {
 
 		allReqResps = CustomMain.getAllReqResp(logger, dumps);
 
-		for (ReqResp reqResp : allReqResps)
-			processReq(!noTemplate, reqResp, tmpDataMap);
+		/* identical bodies and header lines are stored once, large response bodies off heap */
+		ContentPool contentPool = new ContentPool();
+		BodySpill   spill       = new BodySpill(logger, bodySpill);
+		try {
+			for (ReqResp reqResp : allReqResps) {
+				processReq(!noTemplate, reqResp, tmpDataMap);
+				contentPool.intern(reqResp);
+				reqResp.response.body = spill.spill(reqResp.response.body);
+			}
+		} finally {
+			spill.close();
+		}
+		if (spill.getCount() != 0 || BodySpill.getMappedSize() != 0) // files of earlier reloads are released after GC
+			logger.log(Level.INFO, "Response bodies moved off heap: {0}. Spill files on disk: {1} bytes.", new Object[] { spill.getCount(), BodySpill.getMappedSize() });
+
+		if (dirMisses != null) {
+			dirMisses.clear();
+			dirShapes = null;
+		}
+
+		routeTable = new RouteTable(allReqResps, !noWildcard, MATCH_IGNORED_REQUEST_HEADERS, INTERNAL_HTTP_HEADER_X_SERVER_CONTENT_SOURCE.toLowerCase(Locale.ENGLISH), matchCache);
 
-		/* Create OpenAPI JSON */
-		Map<String, Object> openApiMap = OpenApiUtils.createOpenApiMap(allReqResps, openApiTitle);
+		/* Create OpenAPI JSON, only served at --openapi-path */
+		if (openApiPath != null) {
+			Map<String, Object> openApiMap = OpenApiUtils.createOpenApiMap(allReqResps, openApiTitle);
 
-		String openApiJson = JacksonUtils.stringifyToJsonYaml(openApiMap, JacksonUtils.FORMAT_JSON, true, false);
-		openApiJsonBs = openApiJson.getBytes(StandardCharsets.UTF_8);
+			String openApiJson = JacksonUtils.stringifyToJsonYaml(openApiMap, JacksonUtils.FORMAT_JSON, true, false);
+			openApiJsonBs = openApiJson.getBytes(StandardCharsets.UTF_8);
 
-		String openApiYaml = JacksonUtils.stringifyToJsonYaml(openApiMap, JacksonUtils.FORMAT_YAML, true, false);
-		openApiYamlBs = openApiYaml.getBytes(StandardCharsets.UTF_8);
+			String openApiYaml = JacksonUtils.stringifyToJsonYaml(openApiMap, JacksonUtils.FORMAT_YAML, true, false);
+			openApiYamlBs = openApiYaml.getBytes(StandardCharsets.UTF_8);
+		}
+
+		if (metrics != null) {
+			metrics.reloads.increment();
+			metrics.reload.record(System.nanoTime() - startNanos);
+		}
+		reloadEvent.end();
+		if (reloadEvent.shouldCommit()) {
+			reloadEvent.dumpFiles      = dumps.size();
+			reloadEvent.jsFiles        = jss.size();
+			reloadEvent.entries        = allReqResps.size();
+			reloadEvent.distinctBodies = contentPool.getBodyCount();
+			reloadEvent.distinctLines  = contentPool.getStringCount();
+			reloadEvent.spilledBodies  = spill.getCount();
+			reloadEvent.spilledBytes   = spill.getSize();
+			reloadEvent.mappedBytes    = BodySpill.getMappedSize();
+			reloadEvent.commit();
+		}
 
 		if (activateDirWatchers) {
 			for (String dumpFile : dumps) {
@@ -1248,25 +1443,17 @@ public class DeepfakeHttpServlet extends HttpServlet {
 		}
 	}
 
-	/**
-	 * Process header name before output
-	 *
-	 * @param s
-	 * @return
-	 */
-	private static String processHeaderName(String s) {
-		char[] arr    = s.toCharArray();
-		int    first  = 0;
-		int    second = first + 1;
-		arr[first] = Character.toUpperCase(arr[first]);
-		for (int i = second; i < arr.length - 1; i++) {
-			char c = arr[i];
-			if (c == '-') {
-				int next = i + 1;
-				arr[next] = Character.toUpperCase(arr[next]);
-			}
-		}
-		return new String(arr);
+	private static Map<String, List<String>> copyParams(Map<String, List<String>> params) {
+		Map<String, List<String>> copy = new LinkedHashMap<>();
+		for (Map.Entry<String, List<String>> entry : params.entrySet())
+			copy.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+		return copy;
+	}
+
+	private static void restoreParams(Map<String, List<String>> params, Map<String, List<String>> initialParams) {
+		params.clear();
+		for (Map.Entry<String, List<String>> entry : initialParams.entrySet())
+			params.put(entry.getKey(), new ArrayList<>(entry.getValue()));
 	}
 
 	private static ReqResp cloneReqResp(ReqResp reqResp) {
@@ -1301,7 +1488,7 @@ public class DeepfakeHttpServlet extends HttpServlet {
 				headerStr = TemplateUtils.processTemplate(scope, headerStr, dataMap);
 			reqResp.request.headers.set(i, headerStr);
 		}
-		reqResp.request.body = TemplateUtils.processTemplate(scope, reqResp.request.body, dataMap);
+		reqResp.request.body = processTemplate(reqResp.request.body, dataMap);
 	}
 
 	private void processRespHeaders(boolean processTemplate, ReqResp reqResp, Map<String, Object> dataMap) throws IOException {
@@ -1317,7 +1504,21 @@ public class DeepfakeHttpServlet extends HttpServlet {
 
 	private void processRespBody(boolean processTemplate, ReqResp reqResp, Map<String, Object> dataMap) throws IOException {
 		if (processTemplate)
-			reqResp.response.body = TemplateUtils.processTemplate(scope, reqResp.response.body, dataMap);
+			reqResp.response.body = processTemplate(reqResp.response.body, dataMap);
+	}
+
+	/**
+	 * @param body
+	 * @param dataMap
+	 * @return the same body if there is nothing to substitute, so its stored bytes are reused
+	 * @throws IOException
+	 */
+	private Body processTemplate(Body body, Map<String, Object> dataMap) throws IOException {
+		if (body.isDirect()) // spilled bodies have no template expressions
+			return body;
+		String text      = body.toString();
+		String processed = TemplateUtils.processTemplate(scope, text, dataMap);
+		return processed == text ? body : Body.of(processed);
 	}
 
 	/**
@@ -1331,21 +1532,25 @@ public class DeepfakeHttpServlet extends HttpServlet {
 		Files.walk(path).sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
 	}
 
-	private static String valToStr(Object value) throws IOException {
-		if (value == null)
-			return "";
-		return value.toString();
-	}
-
 	private void exportMemoryDataToFile() throws IOException {
+		if (dbExportFile == null)
+			return;
+		DbExportEvent dbExportEvent = new DbExportEvent();
+		dbExportEvent.begin();
 		Path dbExportFilePath = new File(dbExportFile).getAbsoluteFile().toPath();
 		if (Files.exists(dbExportFilePath))
 			if (!noBak)
 				Files.move(dbExportFilePath, Paths.get(dbExportFilePath.toString() + ".bak"), StandardCopyOption.REPLACE_EXISTING);
 		Files.writeString(dbExportFilePath, dataJson);
+		dbExportEvent.end();
+		if (dbExportEvent.shouldCommit()) {
+			dbExportEvent.file  = dbExportFilePath.toString();
+			dbExportEvent.bytes = Files.size(dbExportFilePath);
+			dbExportEvent.commit();
+		}
 	}
 
-	private byte[] forwardRequest(Map<String, Object> dataMap, String forwardOrigin, String providedPath, String providedQueryString, Map<String, List<String>> providedHeaderValuesMap, byte[] providedBodyBs, Map<String, String> responseHeaders, int[] statusArr) throws Exception {
+	private Body forwardRequest(Map<String, Object> dataMap, String forwardOrigin, String providedPath, String providedQueryString, Map<String, List<String>> providedHeaderValuesMap, byte[] providedBodyBs, Map<String, String> responseHeaders, int[] statusArr) throws Exception {
 		Map<String, Object> requestMap = (Map<String, Object>) dataMap.get("request");
 		String              method     = (String) requestMap.get("method");
 
@@ -1416,11 +1621,11 @@ public class DeepfakeHttpServlet extends HttpServlet {
 				bs           = new byte[0];
 				statusArr[0] = 404;
 			}
-			return bs;
+			return Body.wrap(bs);
 		}
 	}
 
-	private byte[] forwardRequestToDir(HttpServletRequest request, ScriptableObject scope, Map<String, String> env, Map<String, Object> dataMap, byte[] requestBs, boolean processTemplates, Map<String, String> responseHeaders, int[] statusArr) throws Exception {
+	private Body forwardRequestToDir(HttpServletRequest request, ScriptableObject scope, RequestContext ctx, Map<String, Object> dataMap, boolean processTemplates, Map<String, String> responseHeaders, int[] statusArr) throws Exception {
 		Map<String, Object>       requestMap         = (Map<String, Object>) dataMap.get("request");
 		String                    providedPath       = (String) requestMap.get("path");
 		Map<String, List<String>> providedParameters = (Map<String, List<String>>) requestMap.get("parameters");
@@ -1430,50 +1635,61 @@ public class DeepfakeHttpServlet extends HttpServlet {
 			forwardToDir0 = dir.substring(FILE_PREFIX.length());
 
 		Path pathRoot = Paths.get(forwardToDir0);
-		Path path     = findStaticFile(pathRoot, providedPath, providedParameters);
+		Path path     = null;
+		if (dirMisses == null)
+			path = findStaticFile(pathRoot, providedPath, providedParameters);
+		else {
+			/* skip the directory walk if no file path has the same shape or the path missed recently */
+			PathShapes shapes = getDirShapes(pathRoot);
+			if ((shapes.mayMatch(providedPath) || shapes.mayMatch(providedPath + "/index.html")) && !dirMisses.contains(providedPath)) {
+				path = findStaticFile(pathRoot, providedPath, providedParameters);
+				if (path == null)
+					dirMisses.add(providedPath);
+			}
+		}
 
-		return forwardRequestToFile(path, request, scope, env, dataMap, requestBs, processTemplates, responseHeaders, statusArr);
+		return forwardRequestToFile(path, request, scope, ctx, dataMap, processTemplates, responseHeaders, statusArr);
 	}
 
-	private byte[] forwardRequestToFile(Path path, HttpServletRequest request, ScriptableObject scope, Map<String, String> env, Map<String, Object> requestMap, byte[] requestBs, boolean processTemplates, Map<String, String> responseHeaders, int[] statusArr) throws IOException, InterruptedException, Exception, JsonProcessingException {
+	private Body forwardRequestToFile(Path path, HttpServletRequest request, ScriptableObject scope, RequestContext ctx, Map<String, Object> requestMap, boolean processTemplates, Map<String, String> responseHeaders, int[] statusArr) throws IOException, InterruptedException, Exception, JsonProcessingException {
 		if (path == null) { // unmatched request
 			statusArr[0] = 404;
 			responseHeaders.put(HTTP_HEADER_CONTENT_LENGTH, "0");
-			return new byte[0];
+			return Body.EMPTY;
 		} else {
 			String  pathStr    = path.toString();
 			boolean executable = Files.isExecutable(path);
 			if (executable) {
-				byte[]        outBs            = runProgram(pathStr, env, requestBs);
-				String        outStr           = new String(outBs, StandardCharsets.UTF_8);
-				int           pos              = outStr.indexOf('\n');
-				String        firstLineRespStr = outStr.substring(0, pos).strip();
-				FirstLineResp firstLineRespCgi = new FirstLineResp(firstLineRespStr);
+				String[]     firstLineArr = new String[1];
+				List<String> headersList  = new ArrayList<>();
+				CgiEvent     cgiEvent     = new CgiEvent();
+				cgiEvent.begin();
+				byte[] bs = CgiRunner.runBuffered(logger, cgiWorkerPools, pathStr, ctx.getEnv(), ctx.openRawRequestStream(), true, cgiTimeout, cgiMaxOutput, firstLineArr, headersList);
+				cgiEvent.end();
+
+				FirstLineResp firstLineRespCgi = new FirstLineResp(firstLineArr[0]);
 				statusArr[0] = firstLineRespCgi.getStatus();
-				String message = firstLineRespCgi.getMessage();
-
-				String   headersAndBodyStr = outStr.substring(pos + 1);
-				int      pos2              = headersAndBodyStr.indexOf("\n\n");
-				String   headersStr        = headersAndBodyStr.substring(0, pos2);
-				String[] headersArr        = headersStr.split("\\n");
-				for (String headerStr : headersArr) {
+				if (cgiEvent.shouldCommit()) {
+					cgiEvent.program = pathStr;
+					cgiEvent.xgi     = true;
+					cgiEvent.pooled  = cgiWorkerPools != null;
+					cgiEvent.status  = statusArr[0];
+					cgiEvent.bytes   = bs.length;
+					cgiEvent.commit();
+				}
+				for (String headerStr : headersList) {
 					Header header = new Header(headerStr);
 					if (!responseHeaders.containsKey(header.name))
 						responseHeaders.put(header.name, header.value);
 				}
-				byte[] bs = new byte[outBs.length - (pos + pos2 + 2)];
-				System.arraycopy(outBs, pos + pos2 + 2, bs, 0, bs.length);
-				return bs;
+				return Body.wrap(bs);
 			} else {
 				byte[]  bs   = Files.readAllBytes(path);
 				boolean http = ParseDumpUtils.isHttpResp(path);
 				if (http) { // HTTP dump file
 					int    headersStrLength = ParseDumpUtils.getHeadersPartSize(bs);
-					byte[] headersBs        = new byte[headersStrLength];
-					byte[] bodyBs           = new byte[bs.length - headersStrLength];
-					System.arraycopy(bs, 0, headersBs, 0, headersBs.length);
-					System.arraycopy(bs, headersBs.length, bodyBs, 0, bodyBs.length);
-					String headersStr = new String(headersBs, StandardCharsets.UTF_8);
+					String headersStr       = new String(bs, 0, headersStrLength, StandardCharsets.UTF_8);
+					Body   body             = Body.wrap(bs, headersStrLength, bs.length - headersStrLength); // no copy
 
 					try (BufferedReader br = new BufferedReader(new StringReader(headersStr))) {
 						boolean first = true;
@@ -1491,12 +1707,10 @@ public class DeepfakeHttpServlet extends HttpServlet {
 							}
 						}
 					}
-					if (processTemplates) {
-						String body = new String(bodyBs, StandardCharsets.UTF_8);
-						body = TemplateUtils.processTemplate(scope, body, requestMap);
-						return body.getBytes(StandardCharsets.UTF_8);
-					} else
-						return bodyBs;
+					if (processTemplates)
+						return processTemplate(body, requestMap);
+					else
+						return body;
 				} else { // regular file
 					boolean serverJs = ParseDumpUtils.isServerJsResp(path);
 					if (serverJs) {
@@ -1523,19 +1737,66 @@ public class DeepfakeHttpServlet extends HttpServlet {
 						Map<String, String> headers          = (Map<String, String>) responseMap.get("headers");
 						responseHeaders.putAll(headers);
 						statusArr[0] = status;
-						return body.getBytes(StandardCharsets.UTF_8);
+						return Body.of(body);
 					} else {
 						String mime = UrlUtils.getMimeByFile(pathStr);
 						responseHeaders.put(HTTP_HEADER_CONTENT_TYPE, mime);
 						responseHeaders.put(HTTP_HEADER_CONTENT_LENGTH, Integer.toString(bs.length));
 						statusArr[0] = 200;
-						return bs;
+						return Body.wrap(bs);
 					}
 				}
 			}
 		}
 	}
 
+	/**
+	 * The first call walks the directory, later calls return the current shapes
+	 * and rebuild stale ones in the background
+	 */
+	private PathShapes getDirShapes(Path root) throws IOException {
+		PathShapes shapes = dirShapes;
+		if (shapes == null) {
+			synchronized (dirShapesLock) {
+				shapes = dirShapes;
+				if (shapes == null) // not built by another thread
+					shapes = buildDirShapes(root);
+			}
+		} else if (System.nanoTime() - dirShapesNanos >= DIR_MISS_TTL * 1_000_000L && dirShapesRebuilding.compareAndSet(false, true)) {
+			Thread dirShapesThread = new Thread(() -> {
+				try {
+					buildDirShapes(root);
+				} catch (IOException e) {
+					dirShapesNanos = System.nanoTime(); // keep old shapes, retry after DIR_MISS_TTL
+					logger.log(Level.WARNING, "Directory walk failed: " + root, e);
+				} finally {
+					dirShapesRebuilding.set(false);
+				}
+			});
+			dirShapesThread.setDaemon(true);
+			dirShapesThread.start();
+		}
+		return shapes;
+	}
+
+	private PathShapes buildDirShapes(Path root) throws IOException {
+		PathShapes newShapes = new PathShapes();
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path path, BasicFileAttributes attr) {
+				try {
+					newShapes.add(HttpPathUtils.extractPathFromUri(parsePath(root, path)));
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		dirShapesNanos = System.nanoTime();
+		dirShapes      = newShapes;
+		return newShapes;
+	}
+
 	private static Path findStaticFile(Path root, final String providedPath, Map<String, List<String>> providedParams) throws IOException {
 		Path[] foundPathArr = new Path[1];
 		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
@@ -1593,102 +1854,4 @@ public class DeepfakeHttpServlet extends HttpServlet {
 			uri = '/' + uri;
 		return uri;
 	}
-
-	private static byte[] extracRequestBytes(HttpServletRequest request, byte[] providedBodyBs, Map<String, List<String>> providedHeaderValuesMap) throws IOException {
-		String method       = request.getMethod().trim().toUpperCase(Locale.ENGLISH);
-		String providedPath = request.getServletPath() + request.getPathInfo();
-
-		String providedQueryString = request.getQueryString();
-		if (providedQueryString == null)
-			providedQueryString = "";
-		String protocol = request.getProtocol();
-
-		String providedFirstLineStr = method + ' ' + providedPath + (providedQueryString.isEmpty() ? "" : "?" + providedQueryString) + ' ' + protocol;
-
-		try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
-			os.write((providedFirstLineStr + '\n').getBytes(StandardCharsets.UTF_8));
-
-			for (Entry<String, List<String>> entry : providedHeaderValuesMap.entrySet()) {
-				String       key    = entry.getKey();
-				List<String> values = entry.getValue();
-				os.write((key + ": ").getBytes(StandardCharsets.UTF_8));
-				String headerValue = HeaderUtils.httpHeaderValuesToString(values);
-				os.write((headerValue + '\n').getBytes(StandardCharsets.UTF_8));
-			}
-			os.write(("\n").getBytes(StandardCharsets.UTF_8));
-			os.write(providedBodyBs);
-			return os.toByteArray();
-		}
-
-	}
-
-	private static byte[] runProgram(String prog, Map<String, String> env, byte[] requestBs) throws IOException, InterruptedException {
-		String[] command;
-		if (WINDOWS_OS)
-			command = new String[] { "cmd.exe", "/c", prog };
-		else
-			command = new String[] { "sh", "-c", prog };
-		ProcessBuilder      pb   = new ProcessBuilder()                 //
-				.directory(new File(System.getProperty("user.home")))   //
-				.command(command);                                      //
-		Map<String, String> envp = pb.environment();
-		envp.putAll(env);
-
-		Process process = pb.start();
-
-		try (InputStream is = new ByteArrayInputStream(requestBs); OutputStream po = process.getOutputStream()) {
-			is.transferTo(po);
-		}
-		try (InputStream is = process.getInputStream(); ByteArrayOutputStream baos = new ByteArrayOutputStream();) {
-			is.transferTo(baos);
-			byte[] bs       = baos.toByteArray();
-			int    exitCode = process.waitFor();
-			if (exitCode != 0)
-				logger.log(Level.WARNING, MessageFormat.format("CGI program: {0} ended with exit code: {1}", prog, exitCode));
-			return bs;
-		} finally {
-			process.destroy();
-		}
-	}
-
-	/**
-	 * Create environment map
-	 */
-	private static Map<String, String> createEnvMap(HttpServletRequest request) throws IOException {
-		Map<String, String> env = new LinkedHashMap<>();
-		/*
-		 * https://datatracker.ietf.org/doc/html/rfc3875#section-4.1.18
-		 * RFC 3875 The Common Gateway Interface (CGI) Version 1.1
-		 */
-
-		/* Request Meta-Variables */
-		// @formatter:off
-		env.put("AUTH_TYPE"          , valToStr(request.getAuthType())                                 ); // 4.1.1.  AUTH_TYPE. . . .  https://datatracker.ietf.org/doc/html/rfc3875#page-11
-		env.put("CONTENT_LENGTH"     , Long.toString(request.getContentLengthLong())                   ); // 4.1.2.  CONTENT_LENGTH .  https://datatracker.ietf.org/doc/html/rfc3875#page-12
-		env.put("CONTENT_TYPE"       , valToStr(request.getContentType())                              ); // 4.1.3.  CONTENT_TYPE . .  https://datatracker.ietf.org/doc/html/rfc3875#page-12
-		env.put("GATEWAY_INTERFACE"  , "CGI/1.1"                                                       ); // 4.1.4.  GATEWAY_INTERFACE https://datatracker.ietf.org/doc/html/rfc3875#page-13
-		env.put("PATH_INFO"          , valToStr(request.getServletPath() + request.getPathInfo())      ); // 4.1.5.  PATH_INFO. . . .  https://datatracker.ietf.org/doc/html/rfc3875#page-13
-		env.put("PATH_TRANSLATED"    , valToStr(request.getServletPath() + request.getPathInfo())      ); // 4.1.6.  PATH_TRANSLATED.  https://datatracker.ietf.org/doc/html/rfc3875#page-14
-		env.put("QUERY_STRING"       , valToStr(request.getQueryString())                              ); // 4.1.7.  QUERY_STRING . .  https://datatracker.ietf.org/doc/html/rfc3875#page-15
-		env.put("REMOTE_ADDR"        , valToStr(request.getRemoteAddr())                               ); // 4.1.8.  REMOTE_ADDR. . .  https://datatracker.ietf.org/doc/html/rfc3875#page-15
-		env.put("REMOTE_HOST"        , valToStr(request.getRemoteHost())                               ); // 4.1.9.  REMOTE_HOST. . .  https://datatracker.ietf.org/doc/html/rfc3875#page-16
-		env.put("REMOTE_IDENT"       , ""                                                              ); // 4.1.10. REMOTE_IDENT . .  https://datatracker.ietf.org/doc/html/rfc3875#page-16
-		env.put("REMOTE_USER"        , valToStr(request.getRemoteUser())                               ); // 4.1.11. REMOTE_USER. . .  https://datatracker.ietf.org/doc/html/rfc3875#page-16
-		env.put("REQUEST_METHOD"     , valToStr(request.getMethod().trim().toUpperCase(Locale.ENGLISH))); // 4.1.12. REQUEST_METHOD .  https://datatracker.ietf.org/doc/html/rfc3875#page-17
-		env.put("SCRIPT_NAME"        , ""                                                              ); // 4.1.13. SCRIPT_NAME. . .  https://datatracker.ietf.org/doc/html/rfc3875#page-17
-		env.put("SERVER_NAME"        , valToStr(request.getServerName())                               ); // 4.1.14. SERVER_NAME. . .  https://datatracker.ietf.org/doc/html/rfc3875#page-17
-		env.put("SERVER_PORT"        , valToStr(Integer.toString(request.getServerPort()))             ); // 4.1.15. SERVER_PORT. . .  https://datatracker.ietf.org/doc/html/rfc3875#page-18
-		env.put("SERVER_PROTOCOL"    , valToStr(request.getProtocol())                                 ); // 4.1.16. SERVER_PROTOCOL.  https://datatracker.ietf.org/doc/html/rfc3875#page-18
-		env.put("SERVER_SOFTWARE"    , X_SERVER_VALUE                                                  ); // 4.1.17. SERVER_SOFTWARE.  https://datatracker.ietf.org/doc/html/rfc3875#page-19
-		env.put("REQUEST_URI"        , valToStr(request.getRequestURI())                               );
-		// @formatter:on
-
-		Enumeration<String> headerNames = request.getHeaderNames();
-		while (headerNames.hasMoreElements()) {
-			String header = headerNames.nextElement().toUpperCase(Locale.ENGLISH);
-			env.put("HTTP_" + header.replace('-', '_'), request.getHeader(header)); // WARNING! Only first header returned.
-		}
-		return env;
-
-	}
 }
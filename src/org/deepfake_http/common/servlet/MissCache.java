@@ -0,0 +1,81 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.servlet;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU set of recently unmatched keys. Entries expire after a fixed time,
+ * so files added to a directory that is not watched are picked up.
+ */
+class MissCache {
+	private final int                         maxSize;
+	private final long                        ttlNanos;
+	private final LinkedHashMap<String, Long> map;
+
+	/**
+	 * @param maxSize   - max number of cached misses
+	 * @param ttlMillis - time to keep a miss in milliseconds
+	 */
+	public MissCache(int maxSize, long ttlMillis) {
+		this.maxSize  = maxSize;
+		this.ttlNanos = ttlMillis * 1_000_000L;
+		this.map      = new LinkedHashMap<>(16, 0.75f, true) {
+							private static final long serialVersionUID = 1L;
+
+							@Override
+							protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+								return size() > MissCache.this.maxSize;
+							}
+						};
+	}
+
+	/**
+	 * @param key
+	 * @return true if key was recorded as a miss and the record is not expired
+	 */
+	public synchronized boolean contains(String key) {
+		Long expires = map.get(key);
+		if (expires == null)
+			return false;
+		if (System.nanoTime() - expires < 0)
+			return true;
+		map.remove(key);
+		return false;
+	}
+
+	public synchronized void add(String key) {
+		map.put(key, System.nanoTime() + ttlNanos);
+	}
+
+	public synchronized void clear() {
+		map.clear();
+	}
+}
@@ -0,0 +1,109 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.servlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Provided request body.
+ * Small bodies are kept in memory, large bodies are spilled to a temporary file
+ * and loaded into memory only if somebody asks for the bytes.
+ */
+public class RequestBody {
+	public static final RequestBody EMPTY = new RequestBody(new byte[0]);
+
+	private byte[] bs;
+	private Path   file;
+	private long   length;
+
+	/**
+	 * In-memory body
+	 *
+	 * @param bs
+	 */
+	public RequestBody(byte[] bs) {
+		this.bs     = bs;
+		this.length = bs.length;
+	}
+
+	/**
+	 * Body spilled to temporary file
+	 *
+	 * @param file
+	 * @param length
+	 */
+	public RequestBody(Path file, long length) {
+		this.file   = file;
+		this.length = length;
+	}
+
+	public long getLength() {
+		return length;
+	}
+
+	public boolean isSpilled() {
+		return file != null;
+	}
+
+	/**
+	 * @return body bytes (temporary file content is read on first call)
+	 * @throws IOException
+	 */
+	public byte[] getBytes() throws IOException {
+		if (bs == null)
+			bs = Files.readAllBytes(file);
+		return bs;
+	}
+
+	/**
+	 * @return stream over body without loading the temporary file into memory
+	 * @throws IOException
+	 */
+	public InputStream openStream() throws IOException {
+		if (bs != null)
+			return new ByteArrayInputStream(bs);
+		return Files.newInputStream(file);
+	}
+
+	/**
+	 * Delete temporary file (if any)
+	 */
+	public void delete() {
+		if (file != null)
+			try {
+				Files.deleteIfExists(file);
+			} catch (IOException e) {
+				// ignore
+			}
+	}
+}
@@ -0,0 +1,211 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.servlet;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Non-blocking request body reader.
+ * Data is accumulated into pooled buffers up to the in-memory limit and spilled
+ * to a temporary file above it. No container thread is blocked by a slow client.
+ * The handler is called only after all data is read.
+ */
+class RequestBodyReader implements ReadListener {
+	private static final String TMP_FILE_PREFIX = "deepfake-body-";
+
+	private final Logger              logger;
+	private final AsyncContext        asyncContext;
+	private final ServletInputStream  is;
+	private final BufferPool          bufferPool;
+	private final long                maxMemory;
+	private final long                maxBody;
+	private final IRequestBodyHandler handler;
+
+	private final List<byte[]> chunks = new ArrayList<>();
+	private int                chunkPos;
+	private long               length;
+
+	private Path         file;
+	private OutputStream fileOs;
+
+	private boolean done;
+
+	/**
+	 * @param logger
+	 * @param asyncContext
+	 * @param is
+	 * @param bufferPool
+	 * @param maxMemory    - max body bytes kept in memory, larger bodies are spilled to temporary file
+	 * @param maxBody      - max body bytes, larger bodies are rejected with 413
+	 * @param handler
+	 */
+	public RequestBodyReader(Logger logger, AsyncContext asyncContext, ServletInputStream is, BufferPool bufferPool, long maxMemory, long maxBody, IRequestBodyHandler handler) {
+		this.logger       = logger;
+		this.asyncContext = asyncContext;
+		this.is           = is;
+		this.bufferPool   = bufferPool;
+		this.maxMemory    = maxMemory;
+		this.maxBody      = maxBody;
+		this.handler      = handler;
+	}
+
+	@Override
+	public void onDataAvailable() throws IOException {
+		while (!done && is.isReady()) {
+			byte[] chunk;
+			if (fileOs != null) {
+				chunk = chunks.get(0);
+				int n = is.read(chunk);
+				if (n == -1)
+					return;
+				length += n;
+				if (length > maxBody) {
+					reject();
+					return;
+				}
+				fileOs.write(chunk, 0, n);
+			} else {
+				if (chunks.isEmpty() || chunkPos == bufferPool.getBufferSize()) {
+					chunks.add(bufferPool.acquire());
+					chunkPos = 0;
+				}
+				chunk = chunks.get(chunks.size() - 1);
+				int n = is.read(chunk, chunkPos, chunk.length - chunkPos);
+				if (n == -1)
+					return;
+				chunkPos += n;
+				length   += n;
+				if (length > maxBody) {
+					reject();
+					return;
+				}
+				if (length > maxMemory)
+					spill();
+			}
+		}
+	}
+
+	@Override
+	public void onAllDataRead() throws IOException {
+		if (done)
+			return;
+		done = true;
+		RequestBody body;
+		if (fileOs != null) {
+			fileOs.close();
+			fileOs = null;
+			body   = new RequestBody(file, length);
+		} else
+			body = new RequestBody(toByteArray());
+		releaseChunks();
+		handler.onBody(body);
+	}
+
+	@Override
+	public void onError(Throwable t) {
+		logger.log(Level.FINE, "Request body read failed", t);
+		discard();
+		asyncContext.complete();
+	}
+
+	/**
+	 * Move in-memory chunks to temporary file and continue writing there
+	 *
+	 * @throws IOException
+	 */
+	private void spill() throws IOException {
+		file   = Files.createTempFile(TMP_FILE_PREFIX, ".tmp");
+		fileOs = new BufferedOutputStream(Files.newOutputStream(file), bufferPool.getBufferSize());
+		int last = chunks.size() - 1;
+		for (int i = 0; i <= last; i++)
+			fileOs.write(chunks.get(i), 0, i == last ? chunkPos : bufferPool.getBufferSize());
+		while (chunks.size() > 1)
+			bufferPool.release(chunks.remove(chunks.size() - 1)); // keep one chunk as read buffer
+	}
+
+	private byte[] toByteArray() {
+		byte[] bs   = new byte[(int) length];
+		int    pos  = 0;
+		int    last = chunks.size() - 1;
+		for (int i = 0; i <= last; i++) {
+			int len = i == last ? chunkPos : bufferPool.getBufferSize();
+			System.arraycopy(chunks.get(i), 0, bs, pos, len);
+			pos += len;
+		}
+		return bs;
+	}
+
+	/**
+	 * Respond with 413 Payload Too Large without reading the rest of the body
+	 *
+	 * @throws IOException
+	 */
+	private void reject() throws IOException {
+		discard();
+		HttpServletResponse response = (HttpServletResponse) asyncContext.getResponse();
+		response.setStatus(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+		response.setHeader("Connection", "close");
+		response.setContentLength(0);
+		asyncContext.complete();
+	}
+
+	private void discard() {
+		done = true;
+		releaseChunks();
+		if (fileOs != null)
+			try {
+				fileOs.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		if (file != null)
+			new RequestBody(file, length).delete();
+		fileOs = null;
+		file   = null;
+	}
+
+	private void releaseChunks() {
+		for (byte[] chunk : chunks)
+			bufferPool.release(chunk);
+		chunks.clear();
+	}
+}
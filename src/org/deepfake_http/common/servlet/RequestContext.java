@@ -0,0 +1,400 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.servlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.deepfake_http.common.match.JsonHash;
+import org.deepfake_http.common.utils.HeaderUtils;
+import org.deepfake_http.common.utils.MatchUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Lazy view of the provided request.
+ * Every representation is computed when first asked for and then memoized,
+ * so plain static mock hits never pay for CGI environment or raw request construction.
+ * 
+ * Not thread-safe: one instance per request, used by the request processing thread only.
+ */
+public class RequestContext {
+	private static final String MIME_APPLICATION_JSON = "application/json";
+	private static final String MIME_FORM_URLENCODED  = "application/x-www-form-urlencoded";
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	private HttpServletRequest request;
+	private RequestBody        requestBody;
+	private String             serverSoftware;
+
+	private String method;
+	private String path;
+	private String queryString;
+	private String firstLine;
+	private String contentType;
+	private String body;
+	private String strippedBody;
+
+	private boolean  jsonBodyParsed;
+	private JsonNode jsonBody;
+	private boolean  jsonBodyHashed;
+	private Long     jsonBodyHash;
+
+	private Map<String, List<String>> parameters;
+	private Map<String, List<String>> queryMap;
+	private Map<String, List<String>> bodyQueryMap;
+	private Map<String, List<String>> headerValuesMap;
+	private Map<String, String>       env;
+	private byte[]                    rawRequestHeadBs;
+
+	private Map<String, Object> requestMap;
+	private Map<String, Object> templateDataMap;
+
+	/**
+	 * @param request
+	 * @param requestBody    - request body
+	 * @param serverSoftware - SERVER_SOFTWARE CGI variable value
+	 */
+	public RequestContext(HttpServletRequest request, RequestBody requestBody, String serverSoftware) {
+		this.request        = request;
+		this.requestBody    = requestBody;
+		this.serverSoftware = serverSoftware;
+	}
+
+	public HttpServletRequest getRequest() {
+		return request;
+	}
+
+	/**
+	 * @return upper case method
+	 */
+	public String getMethod() {
+		if (method == null)
+			method = request.getMethod().trim().toUpperCase(Locale.ENGLISH);
+		return method;
+	}
+
+	public String getPath() {
+		if (path == null)
+			path = request.getServletPath() + request.getPathInfo();
+		return path;
+	}
+
+	/**
+	 * @return query string or empty string
+	 */
+	public String getQueryString() {
+		if (queryString == null) {
+			queryString = request.getQueryString();
+			if (queryString == null)
+				queryString = "";
+		}
+		return queryString;
+	}
+
+	/**
+	 * @return E.g.: "GET /form.html HTTP/1.1"
+	 */
+	public String getFirstLine() {
+		if (firstLine == null)
+			firstLine = getMethod() + ' ' + getPath() + (getQueryString().isEmpty() ? "" : "?" + getQueryString()) + ' ' + request.getProtocol();
+		return firstLine;
+	}
+
+	/**
+	 * @return Content-Type header value or null
+	 */
+	public String getContentType() {
+		if (contentType == null)
+			contentType = request.getHeader(DeepfakeHttpServlet.HTTP_HEADER_CONTENT_TYPE);
+		return contentType;
+	}
+
+	public boolean isJsonRequest() {
+		String contentType = getContentType();
+		return contentType != null && contentType.startsWith(MIME_APPLICATION_JSON);
+	}
+
+	public boolean isFormRequest() {
+		String contentType = getContentType();
+		return contentType != null && contentType.startsWith(MIME_FORM_URLENCODED);
+	}
+
+	public RequestBody getRequestBody() {
+		return requestBody;
+	}
+
+	/**
+	 * @return body bytes (spilled body is loaded into memory)
+	 * @throws IOException
+	 */
+	public byte[] getBodyBytes() throws IOException {
+		return requestBody.getBytes();
+	}
+
+	/**
+	 * @return body decoded as UTF-8
+	 * @throws IOException
+	 */
+	public String getBody() throws IOException {
+		if (body == null)
+			body = new String(getBodyBytes(), StandardCharsets.UTF_8);
+		return body;
+	}
+
+	/**
+	 * @return body without leading and trailing whitespace
+	 * @throws IOException
+	 */
+	public String getStrippedBody() throws IOException {
+		if (strippedBody == null)
+			strippedBody = getBody().strip();
+		return strippedBody;
+	}
+
+	/**
+	 * @return query string parameters, parsed once and shared by all match candidates (read only)
+	 */
+	public Map<String, List<String>> getQueryMap() {
+		if (queryMap == null) {
+			queryMap = new HashMap<>();
+			MatchUtils.parseQuery(getQueryString(), queryMap);
+		}
+		return queryMap;
+	}
+
+	/**
+	 * @return stripped body parsed as form parameters, parsed once and shared by all match candidates (read only)
+	 * @throws IOException
+	 */
+	public Map<String, List<String>> getBodyQueryMap() throws IOException {
+		if (bodyQueryMap == null) {
+			bodyQueryMap = new HashMap<>();
+			MatchUtils.parseQuery(getStrippedBody(), bodyQueryMap);
+		}
+		return bodyQueryMap;
+	}
+
+	/**
+	 * @return parsed JSON body or null if the body is not a valid JSON
+	 */
+	public JsonNode getJsonBody() {
+		if (!jsonBodyParsed) {
+			jsonBodyParsed = true;
+			try {
+				jsonBody = OBJECT_MAPPER.readTree(getStrippedBody());
+			} catch (IOException e) {
+				jsonBody = null;
+			}
+		}
+		return jsonBody;
+	}
+
+	/**
+	 * @return canonical hash of JSON body (see {@link JsonHash}) or null if the body is not a valid JSON
+	 * @throws IOException
+	 */
+	public Long getJsonBodyHash() throws IOException {
+		if (!jsonBodyHashed) {
+			jsonBodyHashed = true;
+			jsonBodyHash   = JsonHash.hash(getStrippedBody());
+		}
+		return jsonBodyHash;
+	}
+
+	/**
+	 * Provided parameters: form body parameters (if any) and parameters collected while matching
+	 *
+	 * @return mutable parameters map
+	 * @throws IOException
+	 */
+	public Map<String, List<String>> getParameters() throws IOException {
+		if (parameters == null) {
+			parameters = new LinkedHashMap<>();
+			if (isFormRequest())
+				MatchUtils.parseQuery(getBody(), parameters);
+		}
+		return parameters;
+	}
+
+	/**
+	 * @return lower case header name to comma-split values
+	 */
+	public Map<String, List<String>> getHeaderValuesMap() {
+		if (headerValuesMap == null) {
+			headerValuesMap = new LinkedHashMap<>();
+			for (Enumeration<String> e = request.getHeaderNames(); e.hasMoreElements();) {
+				String       headerName       = e.nextElement().toLowerCase(Locale.ENGLISH);
+				List<String> headerValuesList = headerValuesMap.get(headerName);
+				if (headerValuesList == null) {
+					headerValuesList = new ArrayList<>();
+					headerValuesMap.put(headerName, headerValuesList);
+				}
+
+				for (Enumeration<String> e1 = request.getHeaders(headerName); e1.hasMoreElements();) {
+					String headerValue = e1.nextElement();
+					headerValue = headerValue.trim();
+					String[] headerValues = headerValue.split(",");
+					for (String value : headerValues) {
+						value = value.trim();
+						if (!value.isEmpty())
+							headerValuesList.add(value);
+					}
+				}
+			}
+		}
+		return headerValuesMap;
+	}
+
+	/**
+	 * Request map exposed to templates and JavaScript as "request"
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	public Map<String, Object> getRequestMap() throws IOException {
+		if (requestMap == null) {
+			requestMap = new LinkedHashMap<>();
+			requestMap.put("parameters", getParameters());
+			requestMap.put("method", getMethod());
+			requestMap.put("path", getPath());
+			requestMap.put("query", getQueryString());
+			requestMap.put("headers", getHeaderValuesMap());
+			requestMap.put("body", getBody());
+		}
+		return requestMap;
+	}
+
+	/**
+	 * Template data map: "request" and "data"
+	 *
+	 * @param dataMap - current memory data
+	 * @return
+	 * @throws IOException
+	 */
+	public Map<String, Object> getTemplateDataMap(Object dataMap) throws IOException {
+		if (templateDataMap == null || templateDataMap.get("data") != dataMap) {
+			templateDataMap = new LinkedHashMap<>();
+			templateDataMap.put("request", getRequestMap());
+			templateDataMap.put("data", dataMap);
+		}
+		return templateDataMap;
+	}
+
+	/**
+	 * Raw request (first line, headers and body) for XGI programs.
+	 * The body is streamed, a spilled body is not loaded into memory.
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	public InputStream openRawRequestStream() throws IOException {
+		if (rawRequestHeadBs == null)
+			try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
+				os.write((getFirstLine() + '\n').getBytes(StandardCharsets.UTF_8));
+
+				for (Entry<String, List<String>> entry : getHeaderValuesMap().entrySet()) {
+					String       key    = entry.getKey();
+					List<String> values = entry.getValue();
+					os.write((key + ": ").getBytes(StandardCharsets.UTF_8));
+					String headerValue = HeaderUtils.httpHeaderValuesToString(values);
+					os.write((headerValue + '\n').getBytes(StandardCharsets.UTF_8));
+				}
+				os.write(("\n").getBytes(StandardCharsets.UTF_8));
+				rawRequestHeadBs = os.toByteArray();
+			}
+		return new SequenceInputStream(new ByteArrayInputStream(rawRequestHeadBs), requestBody.openStream());
+	}
+
+	/**
+	 * CGI environment map
+	 *
+	 * @return
+	 */
+	public Map<String, String> getEnv() {
+		if (env == null) {
+			env = new LinkedHashMap<>();
+			/*
+			 * https://datatracker.ietf.org/doc/html/rfc3875#section-4.1.18
+			 * RFC 3875 The Common Gateway Interface (CGI) Version 1.1
+			 */
+
+			/* Request Meta-Variables */
+			// @formatter:off
+			env.put("AUTH_TYPE"          , valToStr(request.getAuthType())                                 ); // 4.1.1.  AUTH_TYPE. . . .  https://datatracker.ietf.org/doc/html/rfc3875#page-11
+			env.put("CONTENT_LENGTH"     , Long.toString(request.getContentLengthLong())                   ); // 4.1.2.  CONTENT_LENGTH .  https://datatracker.ietf.org/doc/html/rfc3875#page-12
+			env.put("CONTENT_TYPE"       , valToStr(request.getContentType())                              ); // 4.1.3.  CONTENT_TYPE . .  https://datatracker.ietf.org/doc/html/rfc3875#page-12
+			env.put("GATEWAY_INTERFACE"  , "CGI/1.1"                                                       ); // 4.1.4.  GATEWAY_INTERFACE https://datatracker.ietf.org/doc/html/rfc3875#page-13
+			env.put("PATH_INFO"          , valToStr(request.getServletPath() + request.getPathInfo())      ); // 4.1.5.  PATH_INFO. . . .  https://datatracker.ietf.org/doc/html/rfc3875#page-13
+			env.put("PATH_TRANSLATED"    , valToStr(request.getServletPath() + request.getPathInfo())      ); // 4.1.6.  PATH_TRANSLATED.  https://datatracker.ietf.org/doc/html/rfc3875#page-14
+			env.put("QUERY_STRING"       , valToStr(request.getQueryString())                              ); // 4.1.7.  QUERY_STRING . .  https://datatracker.ietf.org/doc/html/rfc3875#page-15
+			env.put("REMOTE_ADDR"        , valToStr(request.getRemoteAddr())                               ); // 4.1.8.  REMOTE_ADDR. . .  https://datatracker.ietf.org/doc/html/rfc3875#page-15
+			env.put("REMOTE_HOST"        , valToStr(request.getRemoteHost())                               ); // 4.1.9.  REMOTE_HOST. . .  https://datatracker.ietf.org/doc/html/rfc3875#page-16
+			env.put("REMOTE_IDENT"       , ""                                                              ); // 4.1.10. REMOTE_IDENT . .  https://datatracker.ietf.org/doc/html/rfc3875#page-16
+			env.put("REMOTE_USER"        , valToStr(request.getRemoteUser())                               ); // 4.1.11. REMOTE_USER. . .  https://datatracker.ietf.org/doc/html/rfc3875#page-16
+			env.put("REQUEST_METHOD"     , valToStr(request.getMethod().trim().toUpperCase(Locale.ENGLISH))); // 4.1.12. REQUEST_METHOD .  https://datatracker.ietf.org/doc/html/rfc3875#page-17
+			env.put("SCRIPT_NAME"        , ""                                                              ); // 4.1.13. SCRIPT_NAME. . .  https://datatracker.ietf.org/doc/html/rfc3875#page-17
+			env.put("SERVER_NAME"        , valToStr(request.getServerName())                               ); // 4.1.14. SERVER_NAME. . .  https://datatracker.ietf.org/doc/html/rfc3875#page-17
+			env.put("SERVER_PORT"        , valToStr(Integer.toString(request.getServerPort()))             ); // 4.1.15. SERVER_PORT. . .  https://datatracker.ietf.org/doc/html/rfc3875#page-18
+			env.put("SERVER_PROTOCOL"    , valToStr(request.getProtocol())                                 ); // 4.1.16. SERVER_PROTOCOL.  https://datatracker.ietf.org/doc/html/rfc3875#page-18
+			env.put("SERVER_SOFTWARE"    , serverSoftware                                                  ); // 4.1.17. SERVER_SOFTWARE.  https://datatracker.ietf.org/doc/html/rfc3875#page-19
+			env.put("REQUEST_URI"        , valToStr(request.getRequestURI())                               );
+			// @formatter:on
+
+			Enumeration<String> headerNames = request.getHeaderNames();
+			while (headerNames.hasMoreElements()) {
+				String header = headerNames.nextElement().toUpperCase(Locale.ENGLISH);
+				env.put("HTTP_" + header.replace('-', '_'), request.getHeader(header)); // WARNING! Only first header returned.
+			}
+		}
+		return env;
+	}
+
+	private static String valToStr(Object value) {
+		if (value == null)
+			return "";
+		return value.toString();
+	}
+}
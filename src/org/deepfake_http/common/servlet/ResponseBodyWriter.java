@@ -0,0 +1,117 @@
+/*
+MIT License
+
+Copyright (c) 2021 xnbox team
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+HOME:   https://xnbox.github.io
+E-Mail: xnbox.team@outlook.com
+*/
+
+
+package org.deepfake_http.common.servlet;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+/**
+ * Non-blocking response body writer.
+ * The body is drained in slices while the connection is writable, so no thread
+ * waits for a slow client. Heap, direct and mapped buffers are supported.
+ */
+class ResponseBodyWriter implements WriteListener {
+	private static final int SLICE_SIZE = 64 * 1024;
+
+	private final Logger              logger;
+	private final AsyncContext        asyncContext;
+	private final ServletOutputStream os;
+	private final ByteBuffer          body;
+	private final boolean             complete;
+
+	private byte[] slice; // copy buffer for non-heap buffers
+
+	/**
+	 * @param logger
+	 * @param asyncContext
+	 * @param os
+	 * @param body
+	 * @param complete     - complete async context when the whole body is written
+	 */
+	public ResponseBodyWriter(Logger logger, AsyncContext asyncContext, ServletOutputStream os, ByteBuffer body, boolean complete) {
+		this.logger       = logger;
+		this.asyncContext = asyncContext;
+		this.os           = os;
+		this.body         = body;
+		this.complete     = complete;
+	}
+
+	/**
+	 * Write body asynchronously. The caller must not write to the response after this call.
+	 *
+	 * @param logger
+	 * @param asyncContext
+	 * @param body
+	 * @param complete     - complete async context when the whole body is written
+	 * @throws IOException
+	 */
+	public static void write(Logger logger, AsyncContext asyncContext, ByteBuffer body, boolean complete) throws IOException {
+		ServletOutputStream os = asyncContext.getResponse().getOutputStream();
+		os.setWriteListener(new ResponseBodyWriter(logger, asyncContext, os, body, complete));
+	}
+
+	@Override
+	public void onWritePossible() throws IOException {
+		while (body.hasRemaining()) {
+			if (!os.isReady())
+				return; // called again when writable
+			int len = Math.min(body.remaining(), SLICE_SIZE);
+			if (body.hasArray()) {
+				os.write(body.array(), body.arrayOffset() + body.position(), len);
+				body.position(body.position() + len);
+			} else {
+				if (slice == null)
+					slice = new byte[SLICE_SIZE];
+				body.get(slice, 0, len);
+				os.write(slice, 0, len);
+			}
+		}
+		if (os.isReady()) {
+			os.flush();
+			if (complete)
+				asyncContext.complete();
+		}
+	}
+
+	@Override
+	public void onError(Throwable t) {
+		logger.log(Level.FINE, "Response body write failed", t);
+		try {
+			asyncContext.complete();
+		} catch (IllegalStateException e) {
+			// already completed
+		}
+	}
+}
@@ -49,4 +49,25 @@ public class HeaderUtils {
 		return sb.toString();
 	}
 
+	/**
+	 * Process header name before output
+	 *
+	 * @param s
+	 * @return
+	 */
+	public static String processHeaderName(String s) {
+		char[] arr    = s.toCharArray();
+		int    first  = 0;
+		int    second = first + 1;
+		arr[first] = Character.toUpperCase(arr[first]);
+		for (int i = second; i < arr.length - 1; i++) {
+			char c = arr[i];
+			if (c == '-') {
+				int next = i + 1;
+				arr[next] = Character.toUpperCase(arr[next]);
+			}
+		}
+		return new String(arr);
+	}
+
 }
@@ -143,13 +143,7 @@ public class JacksonUtils {
 					.enable(JsonReadFeature.ALLOW_SINGLE_QUOTES); //
 			return parseJsonYamlToJsonNode(tsfBuilder.build(), s);
 		} else if (s.startsWith("---")) {
-			tsfBuilder = YAMLFactory.builder(); //
-			tsfBuilder //
-					.enable(JsonReadFeature.ALLOW_TRAILING_COMMA) //
-					.enable(JsonReadFeature.ALLOW_YAML_COMMENTS) //
-					.enable(JsonReadFeature.ALLOW_MISSING_VALUES) //
-					.enable(JsonReadFeature.ALLOW_UNQUOTED_FIELD_NAMES) //
-					.enable(JsonReadFeature.ALLOW_SINGLE_QUOTES); //
+			tsfBuilder = YAMLFactory.builder(); // JSON read features are not supported by YAML backend
 			return parseJsonYamlToJsonNode(tsfBuilder.build(), s);
 		} else {
 			tsfBuilder = CsvFactory.builder(); //
@@ -34,10 +34,10 @@ import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Objects;
 
-import ij.util.WildcardMatch;
+import org.deepfake_http.common.match.QueryMatcher;
+import org.deepfake_http.common.match.WildcardMatcher;
 
 public class MatchUtils {
 
@@ -64,43 +64,7 @@ public class MatchUtils {
 	}
 
 	public static boolean matchQuery(boolean processWildcards, String template, String query, Map<String, List<String>> paramMap) {
-		if (template.equals(query))
-			return true;
-		Map<String, List<String>> templateMap = new LinkedHashMap<>();
-		parseQuery(template, templateMap);
-
-		Map<String, List<String>> queryMap = new LinkedHashMap<>();
-		parseQuery(query, queryMap);
-
-		for (Entry<String, List<String>> templateEntry : templateMap.entrySet()) {
-			String       paramName           = templateEntry.getKey();
-			List<String> paramValuesTemplate = templateEntry.getValue();
-			List<String> paramValuesQuery    = queryMap.get(paramName);
-			if (paramValuesTemplate == null && paramValuesQuery == null)
-				continue;
-			if (paramValuesTemplate == null && paramValuesQuery != null)
-				return false;
-			if (paramValuesTemplate != null && paramValuesQuery == null)
-				return false;
-			if (paramValuesTemplate.size() != paramValuesQuery.size())
-				return false;
-			for (int i = 0; i < paramValuesTemplate.size(); i++) {
-				String paramValueTemplate = paramValuesTemplate.get(i);
-//								if ("*".equals(paramValueTemplate)) {
-//									continue;
-//								}
-				String paramValueQuery = paramValuesQuery.get(i);
-				if (!match(processWildcards, paramValueTemplate, paramValueQuery))
-					return false;
-				List<String> paramValues = paramMap.get(paramName);
-				if (paramValues == null) {
-					paramValues = new ArrayList<>();
-					paramMap.put(paramName, paramValues);
-				}
-				paramValues.add(paramValueQuery);
-			}
-		}
-		return true;
+		return new QueryMatcher(processWildcards, template).match(query, paramMap);
 	}
 
 	/**
@@ -147,34 +111,20 @@ public class MatchUtils {
 	 * @return
 	 */
 	public static boolean matchHeaderValue(boolean processWildcards, String value, Collection<String> providedValues) {
+		WildcardMatcher matcher = WildcardMatcher.compile(processWildcards, value);
 		for (String providedValue : providedValues)
-			if (match(processWildcards, value, providedValue))
+			if (matcher.match(providedValue))
 				return true;
 		return false;
 	}
 
-	private static boolean match(boolean processWildcards, String template, String s) {
-		if (processWildcards) {
-			if (Objects.equals(template, s))
-				return true;
-			if ("*".equals(template) && s != null)
-				return true;
-			if (template == null && s != null)
-				return false;
-			if (template != null && s == null)
-				return false;
-			template = template.strip();
-			s        = s.strip();
-			try {
-				return new WildcardMatch().match(s, template);
-			} catch (Throwable e) {
-				return false; // WildcardMatch can throw Exceptions
-			}
-		} else
-			return Objects.equals(template, s);
-	}
-
-	private static List<String> tokenizePath(String s) {
+	/**
+	 * Split path to non-empty trimmed segments
+	 *
+	 * @param s
+	 * @return
+	 */
+	public static List<String> tokenizePath(String s) {
 		String[]     arr  = s.split("/");
 		List<String> list = new ArrayList<>(arr.length);
 		for (String el : arr) {
@@ -36,6 +36,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
 
+import org.deepfake_http.common.Body;
 import org.deepfake_http.common.FirstLineReq;
 import org.deepfake_http.common.FirstLineResp;
 import org.deepfake_http.common.Header;
@@ -176,10 +177,10 @@ public class OpenApiUtils {
 				reqResp.request.headers.add(DeepfakeHttpServlet.HTTP_HEADER_CONTENT_TYPE + ": " + requestMime);
 			reqResp.request.firstLine = method.toUpperCase(Locale.ENGLISH) + ' ' + path + (queryString.isEmpty() ? "" : '?' + queryString) + ' ' + ParseDumpUtils.HTTP_1_1;
 			if (requestExample != null)
-				reqResp.request.body = requestExample;
+				reqResp.request.body = Body.of(requestExample);
 			reqResp.response.firstLine = ParseDumpUtils.HTTP_1_1 + ' ' + statusStr;
 			reqResp.response.headers.add(DeepfakeHttpServlet.HTTP_HEADER_CONTENT_TYPE + ": " + contentType);
-			reqResp.response.body = example;
+			reqResp.response.body = Body.of(example);
 			allReqResps.add(reqResp);
 		}
 		return allReqResps;
@@ -274,7 +275,7 @@ public class OpenApiUtils {
 			String                    queryString     = HttpPathUtils.extractQueryStringFromUri(firstLineReq.getUri());
 			Map<String, List<String>> queryParams     = new LinkedHashMap<>();
 			Map<String, List<String>> formParams      = new LinkedHashMap<>();
-			String                    requestBody     = reqResp.request.body;
+			String                    requestBody     = reqResp.request.body.toString();
 
 			String requestContentType = null;
 			for (String headerLine : reqResp.request.headers) {
@@ -96,6 +96,7 @@ public class ParseCommandLineUtils {
 	public static final String ARGS_DB_EXPORT           = "--db-export";           // export memory to json file
 	public static final String ARGS_DB_PATH             = "--db-path";             // serve live memory file at specified context
 	public static final String ARGS_DIR                 = "--dir";                 // forward unmatched requests to specified directory
+	public static final String ARGS_DIR_MISS_CACHE      = "--dir-miss-cache";      // recent --dir misses kept to skip directory walk, default: 1024 (0 - disabled)
 	public static final String ARGS_JS                  = "--js";                  // JavaScript file(s) for script engine context
 	public static final String ARGS_NO_BAK              = "--no-bak";              // disable backup old memory file before overwrite
 	public static final String ARGS_NO_WATCH            = "--no-watch";            // disable watch dump files for changes
@@ -121,6 +122,29 @@ public class ParseCommandLineUtils {
 	public static final String ARGS_NO_LOG_REQUEST_INFO = "--no-log-request-info"; // disable request info in console logging
 	public static final String ARGS_NO_LOG_BODY         = "--no-log-body";         // disable request/response body in console logging
 	public static final String ARGS_EXPORT_ON_EXIT      = "--db-export-on-exit";   // export memory only on server close event
+	public static final String ARGS_MATCH_CACHE         = "--match-cache";         // cached matching results, default: 10000 (0 - disabled)
+	public static final String ARGS_MATCH_PARALLELISM   = "--match-parallelism";   // threads evaluating large candidate sets, default: 0 (sequential)
+	public static final String ARGS_CGI_WORKERS         = "--cgi-workers";         // persistent workers per CGI/XGI program, default: 0 (spawn per request)
+	public static final String ARGS_CGI_TIMEOUT         = "--cgi-timeout";         // CGI/XGI program wall-clock timeout in ms, default: 0 (no timeout)
+	public static final String ARGS_CGI_MAX_OUTPUT      = "--cgi-max-output";      // max CGI/XGI program output bytes, default: unlimited
+	public static final String ARGS_MAX_BODY            = "--max-body";            // max request body bytes, default: unlimited
+	public static final String ARGS_BODY_BUFFER         = "--body-buffer";         // max request body bytes kept in memory, default: 1048576
+	public static final String ARGS_BODY_SPILL          = "--body-spill";          // min dump response body bytes kept off heap, default: 1048576 (0 - disabled)
+	public static final String ARGS_COLLECT_ROTATE_SIZE = "--collect-rotate-size"; // rotate collect file at size in bytes, default: 0 (no rotation)
+	public static final String ARGS_COLLECT_ROTATE_TIME = "--collect-rotate-time"; // rotate collect file at age in ms, default: 0 (no rotation)
+	public static final String ARGS_COLLECT_GZIP        = "--collect-gzip";        // gzip rotated collect files
+	public static final String ARGS_LOG_QUEUE           = "--log-queue";           // async log queue capacity, default: 8192
+	public static final String ARGS_LOG_OVERFLOW        = "--log-overflow";        // full log queue policy: block|drop|sample, default: block
+	public static final String ARGS_LOG_SAMPLE          = "--log-sample";          // log 1 of N requests to console, default: 1
+	public static final String ARGS_LOG_RATE            = "--log-rate";            // max requests per second logged to console, default: unlimited
+	public static final String ARGS_NO_LOG_DNS          = "--no-log-dns";          // disable remote host name lookup in console logging
+	public static final String ARGS_ACCESS_LOG          = "--access-log";          // write JSON lines access log to file
+	public static final String ARGS_METRICS_PATH        = "--metrics-path";        // serve metrics at specified context path
+	public static final String ARGS_BENCH               = "--bench";               // send dump or collected requests to specified URL and print latency report
+	public static final String ARGS_BENCH_RATE          = "--bench-rate";          // requests per second for --bench, default: 0 (closed loop)
+	public static final String ARGS_BENCH_CONCURRENCY   = "--bench-concurrency";   // requests in flight for closed loop --bench, default: 16
+	public static final String ARGS_BENCH_DURATION      = "--bench-duration";      // --bench duration in seconds, default: 30
+	public static final String ARGS_BENCH_INTERVAL      = "--bench-interval";      // expected interval between requests in microseconds for closed loop --bench coordinated omission correction, default: 0 (no correction)
 
 	/**
 	 * 
@@ -140,6 +164,7 @@ public class ParseCommandLineUtils {
 		paramMap.put(ARGS_DB_EXPORT, null);
 		paramMap.put(ARGS_DB_PATH, null);
 		paramMap.put(ARGS_DIR, null);
+		paramMap.put(ARGS_DIR_MISS_CACHE, 1024);
 		paramMap.put(ARGS_NO_BAK, false);
 		paramMap.put(ARGS_HELP_OPTION, false);
 		paramMap.put(ARGS_PRINT_INFO, false);
@@ -166,6 +191,29 @@ public class ParseCommandLineUtils {
 		paramMap.put(ARGS_NO_LOG_HEADERS, false);
 		paramMap.put(ARGS_NO_LOG_BODY, false);
 		paramMap.put(ARGS_EXPORT_ON_EXIT, false);
+		paramMap.put(ARGS_MATCH_CACHE, 10000);
+		paramMap.put(ARGS_MATCH_PARALLELISM, 0); // sequential
+		paramMap.put(ARGS_CGI_WORKERS, 0); // spawn per request
+		paramMap.put(ARGS_CGI_TIMEOUT, 0); // no timeout
+		paramMap.put(ARGS_CGI_MAX_OUTPUT, Long.MAX_VALUE); // unlimited
+		paramMap.put(ARGS_MAX_BODY, Long.MAX_VALUE); // unlimited
+		paramMap.put(ARGS_BODY_BUFFER, 1024L * 1024L); // 1 MiB
+		paramMap.put(ARGS_BODY_SPILL, 1024 * 1024); // 1 MiB
+		paramMap.put(ARGS_COLLECT_ROTATE_SIZE, 0L); // no rotation
+		paramMap.put(ARGS_COLLECT_ROTATE_TIME, 0L); // no rotation
+		paramMap.put(ARGS_COLLECT_GZIP, false);
+		paramMap.put(ARGS_LOG_QUEUE, 8192);
+		paramMap.put(ARGS_LOG_OVERFLOW, "block");
+		paramMap.put(ARGS_LOG_SAMPLE, 1); // log all
+		paramMap.put(ARGS_LOG_RATE, 0); // unlimited
+		paramMap.put(ARGS_NO_LOG_DNS, false);
+		paramMap.put(ARGS_ACCESS_LOG, null);
+		paramMap.put(ARGS_METRICS_PATH, null);
+		paramMap.put(ARGS_BENCH, null);
+		paramMap.put(ARGS_BENCH_RATE, 0); // closed loop
+		paramMap.put(ARGS_BENCH_CONCURRENCY, 16);
+		paramMap.put(ARGS_BENCH_DURATION, 30);
+		paramMap.put(ARGS_BENCH_INTERVAL, 0); // no correction
 
 		for (int i = 0; i < args.length; i++) {
 			/* skip original Tommy options */
@@ -201,6 +249,8 @@ public class ParseCommandLineUtils {
 				paramMap.put(args[i], true);
 			else if (args[i].equals(ARGS_NO_LOG_BODY))
 				paramMap.put(args[i], true);
+			else if (args[i].equals(ARGS_NO_LOG_DNS))
+				paramMap.put(args[i], true);
 			else if (args[i].equals(ARGS_EXPORT_ON_EXIT))
 				paramMap.put(args[i], true);
 			else if (args[i].equals(ARGS_NO_CORS))
@@ -213,9 +263,20 @@ public class ParseCommandLineUtils {
 				paramMap.put(args[i], true);
 			else if (args[i].equals(ARGS_NO_BAK))
 				paramMap.put(args[i], true);
+			else if (args[i].equals(ARGS_COLLECT_GZIP))
+				paramMap.put(args[i], true);
 			else if (args[i].equals(ARGS_COLLECT)) {
 				if (i < args.length - 1)
 					paramMap.put(args[i], args[++i]);
+			} else if (args[i].equals(ARGS_ACCESS_LOG)) {
+				if (i < args.length - 1)
+					paramMap.put(args[i], args[++i]);
+			} else if (args[i].equals(ARGS_METRICS_PATH)) {
+				if (i < args.length - 1)
+					paramMap.put(args[i], args[++i]);
+			} else if (args[i].equals(ARGS_BENCH)) {
+				if (i < args.length - 1)
+					paramMap.put(args[i], args[++i]);
 			} else if (args[i].equals(ARGS_OPENAPI_PATH)) {
 				if (i < args.length - 1)
 					paramMap.put(args[i], args[++i]);
@@ -285,6 +346,68 @@ public class ParseCommandLineUtils {
 			} else if (args[i].equals(ARGS_MAX_LOG_BODY)) {
 				if (i < args.length - 1)
 					paramMap.put(args[i], Integer.parseInt(args[++i]));
+			} else if (args[i].equals(ARGS_DIR_MISS_CACHE)) {
+				if (i < args.length - 1)
+					paramMap.put(args[i], Integer.parseInt(args[++i]));
+			} else if (args[i].equals(ARGS_MATCH_CACHE)) {
+				if (i < args.length - 1)
+					paramMap.put(args[i], Integer.parseInt(args[++i]));
+			} else if (args[i].equals(ARGS_MATCH_PARALLELISM)) {
+				if (i < args.length - 1)
+					paramMap.put(args[i], Integer.parseInt(args[++i]));
+			} else if (args[i].equals(ARGS_CGI_WORKERS)) {
+				if (i < args.length - 1)
+					paramMap.put(args[i], Integer.parseInt(args[++i]));
+			} else if (args[i].equals(ARGS_CGI_TIMEOUT)) {
+				if (i < args.length - 1)
+					paramMap.put(args[i], Integer.parseInt(args[++i]));
+			} else if (args[i].equals(ARGS_CGI_MAX_OUTPUT)) {
+				if (i < args.length - 1)
+					paramMap.put(args[i], Long.parseLong(args[++i]));
+			} else if (args[i].equals(ARGS_MAX_BODY)) {
+				if (i < args.length - 1)
+					paramMap.put(args[i], Long.parseLong(args[++i]));
+			} else if (args[i].equals(ARGS_BODY_BUFFER)) {
+				if (i < args.length - 1)
+					paramMap.put(args[i], Long.parseLong(args[++i]));
+			} else if (args[i].equals(ARGS_BODY_SPILL)) {
+				if (i < args.length - 1) {
+					int bodySpill = Integer.parseInt(args[++i]);
+					if (bodySpill >= 0)
+						paramMap.put(ARGS_BODY_SPILL, bodySpill);
+					else if (logger != null)
+						logger.log(Level.WARNING, "Bad option value: \"{0} {1}\". Ignored.", new Object[] { ARGS_BODY_SPILL, args[i] });
+				}
+			} else if (args[i].equals(ARGS_COLLECT_ROTATE_SIZE)) {
+				if (i < args.length - 1)
+					paramMap.put(args[i], Long.parseLong(args[++i]));
+			} else if (args[i].equals(ARGS_COLLECT_ROTATE_TIME)) {
+				if (i < args.length - 1)
+					paramMap.put(args[i], Long.parseLong(args[++i]));
+			} else if (args[i].equals(ARGS_LOG_QUEUE)) {
+				if (i < args.length - 1)
+					paramMap.put(args[i], Integer.parseInt(args[++i]));
+			} else if (args[i].equals(ARGS_LOG_OVERFLOW)) {
+				if (i < args.length - 1)
+					paramMap.put(args[i], args[++i].toLowerCase(Locale.ENGLISH));
+			} else if (args[i].equals(ARGS_LOG_SAMPLE)) {
+				if (i < args.length - 1)
+					paramMap.put(args[i], Integer.parseInt(args[++i]));
+			} else if (args[i].equals(ARGS_LOG_RATE)) {
+				if (i < args.length - 1)
+					paramMap.put(args[i], Integer.parseInt(args[++i]));
+			} else if (args[i].equals(ARGS_BENCH_RATE)) {
+				if (i < args.length - 1)
+					paramMap.put(args[i], Integer.parseInt(args[++i]));
+			} else if (args[i].equals(ARGS_BENCH_CONCURRENCY)) {
+				if (i < args.length - 1)
+					paramMap.put(args[i], Integer.parseInt(args[++i]));
+			} else if (args[i].equals(ARGS_BENCH_DURATION)) {
+				if (i < args.length - 1)
+					paramMap.put(args[i], Integer.parseInt(args[++i]));
+			} else if (args[i].equals(ARGS_BENCH_INTERVAL)) {
+				if (i < args.length - 1)
+					paramMap.put(args[i], Integer.parseInt(args[++i]));
 			} else {
 				String fileName = args[i];
 				if (fileName.startsWith("--"))
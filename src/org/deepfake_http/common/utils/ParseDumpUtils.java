@@ -36,6 +36,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 
+import org.deepfake_http.common.Body;
 import org.deepfake_http.common.HttpMethod;
 import org.deepfake_http.common.ReqResp;
 import org.deepfake_http.thirdparty.RemoveCommentsUtils;
@@ -76,6 +77,9 @@ public class ParseDumpUtils {
 		int     lineNo        = 0;
 		int     requestLineNo = 0;
 
+		StringBuilder requestBody  = new StringBuilder();
+		StringBuilder responseBody = new StringBuilder();
+
 		for (String line : lines) {
 			lineNo++;
 
@@ -119,10 +123,12 @@ public class ParseDumpUtils {
 				if (first)
 					first = false;
 				else {
-					reqResp.request.body  = trimLastLineBreak(reqResp.request.body);
-					reqResp.response.body = trimLastLineBreak(reqResp.response.body);
+					reqResp.request.body  = Body.of(trimLastLineBreak(requestBody.toString()));
+					reqResp.response.body = Body.of(trimLastLineBreak(responseBody.toString()));
 					list.add(reqResp);
 				}
+				requestBody.setLength(0);
+				responseBody.setLength(0);
 
 				requestLineNo = lineNo;
 
@@ -155,9 +161,9 @@ public class ParseDumpUtils {
 						continue;
 					}
 					if (inRequest)
-						reqResp.request.body += line;
+						requestBody.append(line);
 					else if (inResponse)
-						reqResp.response.body += line;
+						responseBody.append(line);
 				} else {
 					if (line.strip().isEmpty())
 						inBody = true;
@@ -187,8 +193,11 @@ public class ParseDumpUtils {
 		}
 		if (inRequest)
 			throw new Exception("Request without response! Line: " + requestLineNo);
-		if (reqResp != null)
+		if (reqResp != null) {
+			reqResp.request.body  = Body.of(requestBody.toString());
+			reqResp.response.body = Body.of(responseBody.toString());
 			list.add(reqResp);
+		}
 
 		return list;
 	}
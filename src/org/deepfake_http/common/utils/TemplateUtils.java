@@ -31,6 +31,7 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
+import org.deepfake_http.common.jfr.TemplateEvent;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.ImporterTopLevel;
 import org.mozilla.javascript.ScriptableObject;
@@ -85,6 +86,11 @@ public class TemplateUtils {
 	 * @throws IOException
 	 */
 	public static String processTemplate(ScriptableObject scope, String template, Map<String, Object> dataMap) throws IOException {
+		TemplateEvent templateEvent = new TemplateEvent();
+		templateEvent.begin();
+		int templateLength = template.length();
+		int expressions    = 0;
+
 		Context ctx = Context.enter();
 		ctx.setLanguageVersion(Context.VERSION_1_8);
 		ctx.setOptimizationLevel(9);
@@ -103,8 +109,17 @@ public class TemplateUtils {
 
 			String replacer = eval(ctx, scope, js, dataMap);
 			template = template.substring(0, pos) + replacer + template.substring(pos + js.length() + 3);
+			expressions++;
 		}
 		Context.exit();
+
+		templateEvent.end();
+		if (templateEvent.shouldCommit()) {
+			templateEvent.expressions    = expressions;
+			templateEvent.templateLength = templateLength;
+			templateEvent.resultLength   = template.length();
+			templateEvent.commit();
+		}
 		return template;
 	}
 
@@ -37,6 +37,7 @@ import java.util.logging.Logger;
 
 import org.deepfake_http.common.FirstLineReq;
 import org.deepfake_http.common.ReqResp;
+import org.deepfake_http.common.loadgen.LoadGenerator;
 import org.deepfake_http.common.utils.JacksonUtils;
 import org.deepfake_http.common.utils.OpenApiUtils;
 import org.deepfake_http.common.utils.ParseCommandLineUtils;
@@ -67,6 +68,7 @@ public class CustomMain {
 		boolean      noPretty = (boolean) paramMap.get(ParseCommandLineUtils.ARGS_NO_PRETTY);
 		boolean      noColor  = (boolean) paramMap.get(ParseCommandLineUtils.ARGS_NO_COLOR);
 		String       format   = (String) paramMap.get(ParseCommandLineUtils.ARGS_FORMAT);
+		String       bench    = (String) paramMap.get(ParseCommandLineUtils.ARGS_BENCH);
 
 		if (help || args.length == 0)
 			doHelp();
@@ -100,6 +102,23 @@ public class CustomMain {
 				e.printStackTrace();
 			}
 			System.exit(0);
+		} else if (bench != null) {
+			try {
+				String        collect     = (String) paramMap.get(ParseCommandLineUtils.ARGS_COLLECT);
+				List<ReqResp> allReqResps = getAllReqResp(logger, collect == null ? dumps : List.of(collect));
+
+				int                 rate        = (int) paramMap.get(ParseCommandLineUtils.ARGS_BENCH_RATE);
+				int                 concurrency = (int) paramMap.get(ParseCommandLineUtils.ARGS_BENCH_CONCURRENCY);
+				int                 duration    = (int) paramMap.get(ParseCommandLineUtils.ARGS_BENCH_DURATION);
+				int                 interval    = (int) paramMap.get(ParseCommandLineUtils.ARGS_BENCH_INTERVAL);
+				LoadGenerator       generator   = new LoadGenerator(logger, bench, allReqResps, rate, concurrency, duration, interval);
+				Map<String, Object> reportMap   = generator.run();
+				String              json        = JacksonUtils.stringifyToJsonYaml(reportMap, format, !noPretty, !noColor);
+				System.out.println(json);
+			} catch (Throwable e) {
+				e.printStackTrace();
+			}
+			System.exit(0);
 		}
 	}
 
@@ -124,19 +143,41 @@ public class CustomMain {
 		sb.append("   --db-export <file>       export memory to json file                         \n");
 		sb.append("   --db-path <path>         serve live memory file at specified context        \n");
 		sb.append("   --dir <dir>              forward unmatched requests to specified directory  \n");
+		sb.append("   --dir-miss-cache <number> recent --dir misses kept, default: 1024 (0 - off) \n");
 		sb.append("   --js <file|url>...       JavaScript file(s) for script engine context       \n");
 		sb.append("   --openapi-path <path>    serve built-in OpenAPI client at specified context \n");
 		sb.append("   --openapi-title <text>   provide custom OpenAPI specification title         \n");
 		sb.append("   --collect <file>         collect live request/response to file              \n");
+		sb.append("   --access-log <file>      write JSON lines access log to file                \n");
+		sb.append("   --metrics-path <path>    serve metrics at specified context                 \n");
 		sb.append("   --format <json|yaml>     output format for --print-* commands, default: json\n");
 		sb.append("   --status <number>        status code for non-matching requests, default: 404\n");
 		sb.append("   --max-log-body <number>  max body bytes in console log, default: unlimited  \n");
+		sb.append("   --match-cache <number>   cached matching results, default: 10000 (0 - off)  \n");
+		sb.append("   --match-parallelism <number> threads matching large candidate sets, default: 0\n");
+		sb.append("   --cgi-workers <number>   persistent workers per CGI/XGI program, default: 0 \n");
+		sb.append("   --cgi-timeout <ms>       CGI/XGI program timeout, default: 0 (no timeout)   \n");
+		sb.append("   --cgi-max-output <bytes> max CGI/XGI program output, default: unlimited     \n");
+		sb.append("   --max-body <bytes>       max request body, default: unlimited               \n");
+		sb.append("   --body-buffer <bytes>    max request body kept in memory, default: 1048576  \n");
+		sb.append("   --body-spill <bytes>     min response body kept off heap, default: 1048576  \n");
+		sb.append("   --collect-rotate-size <bytes> rotate collect file at size, default: no rotation\n");
+		sb.append("   --collect-rotate-time <ms>    rotate collect file at age, default: no rotation \n");
+		sb.append("   --log-queue <number>     async log queue capacity, default: 8192            \n");
+		sb.append("   --log-overflow <policy>  full log queue policy: block|drop|sample           \n");
+		sb.append("   --log-sample <number>    log 1 of N requests to console, default: 1         \n");
+		sb.append("   --log-rate <number>      max logged requests per second, default: unlimited \n");
+		sb.append("   --bench-rate <number>    requests per second for --bench, default: 0 (closed loop)\n");
+		sb.append("   --bench-concurrency <number> requests in flight for --bench, default: 16    \n");
+		sb.append("   --bench-duration <seconds>   --bench duration, default: 30                  \n");
+		sb.append("   --bench-interval <us>    expected request interval for closed loop --bench, default: 0 (no correction)\n");
 		sb.append("                                                                               \n");
 		sb.append("FLAGS:                                                                         \n");
 		sb.append("   --no-log                 disable request/response console logging           \n");
 		sb.append("   --no-log-request-info    disable request info in console logging            \n");
 		sb.append("   --no-log-headers         disable request/response headers in console logging\n");
 		sb.append("   --no-log-body            disable request/response body in console logging   \n");
+		sb.append("   --no-log-dns             disable remote host name lookup in console logging \n");
 		sb.append("   --no-cors                disable CORS headers                               \n");
 		sb.append("   --no-etag                disable 'ETag' header                              \n");
 		sb.append("   --no-server              disable 'Server' header                            \n");
@@ -149,12 +190,14 @@ public class CustomMain {
 		sb.append("   --strict-json            enable strict JSON comparison                      \n");
 		sb.append("   --redirect               enable redirect HTTP to HTTPS                      \n");
 		sb.append("   --db-export-on-exit      export memory only on server close event           \n");
+		sb.append("   --collect-gzip           gzip rotated collect files                         \n");
 		sb.append("                                                                               \n");
 		sb.append("COMMANDS:                                                                      \n");
 		sb.append("   --help                   print help message                                 \n");
 		sb.append("   --print-info             print dump files statistics to stdout as json/yaml \n");
 		sb.append("   --print-requests         print dump requests to stdout as json/yaml         \n");
 		sb.append("   --print-openapi          print OpenAPI specification to stdout as json/yaml \n");
+		sb.append("   --bench <url>            send dump requests to URL and print latency report \n");
 
 		System.out.println(sb);
 		System.exit(0);